@@ -0,0 +1,163 @@
+package org.yipuran.wicketcustom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
+import org.apache.wicket.markup.html.form.DropDownChoice;
+import org.apache.wicket.model.IModel;
+import org.danekja.java.util.function.serializable.SerializableFunction;
+
+/**
+ * 連動 XDropDownChoice.
+ * <PRE>
+ * 親の DropDownChoice で選択した値から選択リストを求める XDropDownChoice
+ * 親の選択が変わると、子、孫…と連動する全ての CascadingDropDownChoice を１回の AJAX リクエストで更新する。
+ * 選択中の値が新しい選択リストに無ければ選択を解除する。
+ * 選択リストは親の選択値（ChoiceValue の getOptionValue()）毎に保持して、
+ * 直前に選択した親の値に戻った時は読込み直さない。保持する数はデフォルト 8 で、
+ * 超えると最も長く参照されていない選択リストから破棄する。
+ * 保持した選択リストはページと一緒に保存されない。（ページを復元した後は再度読込む）
+ *
+ * （例） 都道府県 → 市区町村 → 町域
+ * final XDropDownChoice<Pref> pref = new XDropDownChoice<Pref>("pref", new Model<Pref>(), prefList, e->e.name);
+ * final CascadingDropDownChoice<Pref, City> city = new CascadingDropDownChoice<Pref, City>("city", new Model<City>(), pref
+ *    , p->cityDao.list(p.code), e->e.name);
+ * final CascadingDropDownChoice<City, Town> town = new CascadingDropDownChoice<City, Town>("town", new Model<Town>(), city
+ *    , c->townDao.list(c.code), e->e.name);
+ * queue(pref, city, town);
+ * </PRE>
+ * @param <P> 親の選択値の型
+ * @param <T> 選択リストの要素型
+ */
+public class CascadingDropDownChoice<P extends ChoiceValue, T extends ChoiceValue> extends XDropDownChoice<T>{
+	private static final long serialVersionUID = 1L;
+	private final DropDownChoice<P> parent;
+	private final SerializableFunction<P, ? extends List<T>> loader;
+	private int cacheSize = 8;
+	/** 親の選択値 → 選択リスト、ページと一緒にシリアライズしない */
+	private transient Map<String, List<T>> cache;
+
+	/**
+	 * コンストラクタ.
+	 * @param id Wicket-ID
+	 * @param model 選択値Model
+	 * @param parent 親の DropDownChoice
+	 * @param loader 親の選択値から選択リストを求める Function
+	 * @param renderer IChoiceRenderer拡張
+	 */
+	public CascadingDropDownChoice(String id, IModel<T> model, DropDownChoice<P> parent
+			, SerializableFunction<P, ? extends List<T>> loader, IIChoiceRenderer<? super T> renderer){
+		super(id, model, Collections.<T>emptyList(), renderer);
+		this.parent = parent;
+		this.loader = loader;
+		setChoices(new CascadeChoicesModel());
+		setOutputMarkupId(true);
+		CascadeBehavior.of(parent).children.add(this);
+	}
+	/**
+	 * 保持する選択リスト数の設定.
+	 * @param cacheSize 親の選択値の数、0 は保持しない
+	 * @return CascadingDropDownChoice
+	 */
+	public CascadingDropDownChoice<P, T> setCacheSize(int cacheSize){
+		if (cacheSize >= 0){
+			this.cacheSize = cacheSize;
+			cache = null;
+		}
+		return this;
+	}
+	/**
+	 * 保持している選択リストの破棄.
+	 */
+	public void invalidate(){
+		cache = null;
+	}
+	/**
+	 * @return 親の DropDownChoice
+	 */
+	public DropDownChoice<P> getParentChoice(){
+		return parent;
+	}
+	/**
+	 * 親の選択が変わった時の処理.
+	 * 選択中の値が新しい選択リストに無ければ選択を解除して、自身と連動する子を AjaxRequestTarget に追加する。
+	 * @param target AjaxRequestTarget
+	 */
+	protected void onParentChanged(AjaxRequestTarget target){
+		clearInput();
+		T current = getModelObject();
+		if (current != null){
+			String value = current.getOptionValue();
+			if (getChoices().stream().noneMatch(e->e != null && value.equals(e.getOptionValue()))){
+				setModelObject(null);
+			}
+		}
+		target.add(this);
+		getBehaviors(CascadeBehavior.class).forEach(b->b.cascade(target));
+	}
+
+	private Map<String, List<T>> cache(){
+		if (cache==null){
+			cache = new LinkedHashMap<String, List<T>>(16, 0.75f, true){
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, List<T>> eldest){
+					return size() > cacheSize;
+				}
+			};
+		}
+		return cache;
+	}
+
+	/** 親の選択値から求める選択リスト. */
+	private class CascadeChoicesModel implements IModel<List<T>>{
+		private static final long serialVersionUID = 1L;
+		@Override
+		public List<T> getObject(){
+			P p = parent.getModelObject();
+			if (p==null || p.getOptionValue()==null) return Collections.emptyList();
+			String key = p.getOptionValue();
+			List<T> list = cache().get(key);
+			if (list==null){
+				List<T> loaded = loader.apply(p);
+				list = loaded==null ? Collections.<T>emptyList() : loaded;
+				if (cacheSize > 0){
+					cache().put(key, list);
+				}
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * 親の change イベントで連動する CascadingDropDownChoice を更新するビヘビア.
+	 * 親１つに１つだけ追加される。
+	 */
+	private static final class CascadeBehavior extends AjaxFormComponentUpdatingBehavior{
+		private static final long serialVersionUID = 1L;
+		private final List<CascadingDropDownChoice<?, ?>> children = new ArrayList<>();
+
+		private CascadeBehavior(){
+			super("change");
+		}
+		private static CascadeBehavior of(DropDownChoice<?> parent){
+			List<CascadeBehavior> list = parent.getBehaviors(CascadeBehavior.class);
+			if (!list.isEmpty()) return list.get(0);
+			CascadeBehavior behavior = new CascadeBehavior();
+			parent.add(behavior);
+			return behavior;
+		}
+		@Override
+		protected void onUpdate(AjaxRequestTarget target){
+			cascade(target);
+		}
+		private void cascade(AjaxRequestTarget target){
+			children.forEach(c->c.onParentChanged(target));
+		}
+	}
+}
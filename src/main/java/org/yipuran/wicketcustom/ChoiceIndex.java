@@ -0,0 +1,94 @@
+package org.yipuran.wicketcustom;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 選択リストの id → 要素 インデックス.
+ * <PRE>
+ * IChoiceRenderer の getObject を O(1) で解決する為、選択リスト１つに対して一度だけ id → 位置 を作成する。
+ * 初めて見る選択リストは走査で解決し、同じリストインスタンスで２回目に問い合わせた時にインデックスを作成する。
+ * （リクエスト毎に新しいリストを返す Model では、走査より高くつくインデックスを作らない）
+ * インデックスで見つけた位置の要素は id を確認してから返す。同一サイズのままリストが書き換えられていれば
+ * 走査で解決して、次の問い合わせでインデックスを作り直す。
+ * 同じ id の要素が複数ある場合は、リスト先頭側の要素を優先する。（stream().findFirst() と同じ結果）
+ * リストは WeakReference で保持するので、インデックスがリストを解放させないことはない。
+ * </PRE>
+ * @param <T> 選択リストの要素型
+ */
+final class ChoiceIndex<T>{
+	private final Function<? super T, String> idfunction;
+	private WeakReference<List<?>> listRef = new WeakReference<>(null);
+	private int size;
+	/** id → リスト位置、同じリストを２回目に問い合わせるまで null */
+	private Map<String, Integer> positions;
+
+	private ChoiceIndex(Function<? super T, String> idfunction){
+		this.idfunction = idfunction;
+	}
+	/**
+	 * インデックス生成.
+	 * @param idfunction 要素から id を求める Function
+	 * @return ChoiceIndex
+	 */
+	static <T> ChoiceIndex<T> of(Function<? super T, String> idfunction){
+		return new ChoiceIndex<>(idfunction);
+	}
+	/**
+	 * id → 要素.
+	 * @param list 選択リスト
+	 * @param id id
+	 * @return 要素、存在しなければ null
+	 */
+	synchronized T get(List<? extends T> list, String id){
+		if (id==null) return null;
+		if (listRef.get() != list || size != list.size()){
+			listRef = new WeakReference<>(list);
+			size = list.size();
+			positions = null;
+			return scan(list, id);
+		}
+		if (positions==null){
+			positions = build(list);
+		}
+		Integer position = positions.get(id);
+		if (position==null) return null;
+		T t = list.get(position);
+		if (id.equals(idfunction.apply(t))){
+			return t;
+		}
+		// 同一サイズのままリストが書き換えられている
+		positions = null;
+		return scan(list, id);
+	}
+	/**
+	 * インデックス破棄. 次の問い合わせは走査で解決する。
+	 */
+	synchronized void clear(){
+		listRef = new WeakReference<>(null);
+		positions = null;
+	}
+	private T scan(List<? extends T> list, String id){
+		for(T t : list){
+			if (id.equals(idfunction.apply(t))){
+				return t;
+			}
+		}
+		return null;
+	}
+	private Map<String, Integer> build(List<? extends T> list){
+		Map<String, Integer> map = new HashMap<>(Math.max(16, (int)(list.size() / 0.75f) + 1));
+		int i = 0;
+		for(T t : list){
+			String id = idfunction.apply(t);
+			if (id != null){
+				map.putIfAbsent(id, i);
+			}
+			i++;
+		}
+		return map;
+	}
+}
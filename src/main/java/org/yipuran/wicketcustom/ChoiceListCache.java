@@ -0,0 +1,269 @@
+package org.yipuran.wicketcustom;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.IApplicationListener;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * アプリケーション共通 選択リストキャッシュ.
+ * <PRE>
+ * 全ユーザ共通のマスタ等の選択リストをキー毎に１つだけ読込んで保持する。
+ * 有効期間（TTL）を過ぎた選択リストは、古いリストを返しながらバックグラウンドで読込み直す。
+ * 保持するキー数が上限を超えると、最も長く参照されていない選択リストから破棄する。（破棄後は次の参照で読込む）
+ * コンポーネントには model(key) で生成する ChoiceListModel を渡す。ChoiceListModel はキーだけを保持する
+ * LoadableDetachableModel なので、選択リストがページと一緒にシリアライズされることはない。
+ *
+ * （例）
+ * WebApplication の init() で
+ *    ChoiceListCache.install(this, 200, Duration.ofMinutes(10))
+ *       .register("prefecture", ()->prefectureDao.list())
+ *       .register("item", ()->itemDao.list());
+ *
+ * WebPage で
+ *    queue(new XDropDownChoice<Item>("select_item", new Model<Item>(), ChoiceListCache.<Item>model("item"), e->e.name ));
+ * </PRE>
+ */
+public final class ChoiceListCache{
+	private static final MetaDataKey<ChoiceListCache> KEY = new MetaDataKey<ChoiceListCache>(){
+		private static final long serialVersionUID = 1L;
+	};
+	private static final Logger logger = LoggerFactory.getLogger(ChoiceListCache.class);
+
+	private final int maxSize;
+	private final long ttlMillis;
+	private final Map<String, Supplier<? extends List<?>>> loaders = new ConcurrentHashMap<>();
+	private final Map<String, Entry> entries;
+	/** キー毎の読込みロック */
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+	/** キー毎の破棄回数（entries で同期）、破棄より前に始まった読込みの結果は保持しない */
+	private final Map<String, Long> versions = new HashMap<>();
+	/** clear の回数（entries で同期） */
+	private long generation;
+	private final ExecutorService refresher;
+
+	private ChoiceListCache(int maxSize, Duration ttl){
+		this.maxSize = maxSize;
+		this.ttlMillis = ttl.toMillis();
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest){
+				return size() > ChoiceListCache.this.maxSize;
+			}
+		};
+		refresher = Executors.newSingleThreadExecutor(r->{
+			Thread t = new Thread(r, "ChoiceListCache-refresh");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+	/**
+	 * ChoiceListCache をアプリケーションに登録.
+	 * WebApplication の init() で実行する。アプリケーション終了時にバックグラウンド読込みは停止する。
+	 * 既に登録されている ChoiceListCache は、バックグラウンド読込みを停止して置き換える。
+	 * @param application Application
+	 * @param maxSize 保持するキー数の上限
+	 * @param ttl 選択リストの有効期間
+	 * @return ChoiceListCache
+	 */
+	public static ChoiceListCache install(Application application, int maxSize, Duration ttl){
+		if (maxSize < 1) throw new IllegalArgumentException("maxSize must be greater than 0");
+		ChoiceListCache previous = application.getMetaData(KEY);
+		if (previous != null){
+			previous.refresher.shutdownNow();
+		}
+		ChoiceListCache cache = new ChoiceListCache(maxSize, ttl);
+		application.setMetaData(KEY, cache);
+		application.getApplicationListeners().add(new IApplicationListener(){
+			@Override
+			public void onBeforeDestroyed(Application application){
+				cache.refresher.shutdownNow();
+			}
+		});
+		return cache;
+	}
+	/**
+	 * 現在のアプリケーションの ChoiceListCache 取得.
+	 * @return ChoiceListCache
+	 * @throws IllegalStateException install されていない
+	 */
+	public static ChoiceListCache get(){
+		ChoiceListCache cache = Application.get().getMetaData(KEY);
+		if (cache==null) throw new IllegalStateException("ChoiceListCache is not installed");
+		return cache;
+	}
+	/**
+	 * 選択リスト読込み処理の登録.
+	 * @param key キー
+	 * @param loader 選択リストを読込む Supplier
+	 * @return ChoiceListCache
+	 */
+	public ChoiceListCache register(String key, Supplier<? extends List<?>> loader){
+		loaders.put(key, loader);
+		invalidate(key);
+		return this;
+	}
+	/**
+	 * 選択リスト取得.
+	 * <PRE>
+	 * 保持していなければ読込む。同じキーの読込みは同時に１つだけ実行される。
+	 * 有効期間を過ぎていれば保持しているリストを返して、バックグラウンドで読込み直す。
+	 * </PRE>
+	 * @param key キー
+	 * @return 変更不可の選択リスト
+	 * @throws IllegalArgumentException 登録されていないキー
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> get(String key){
+		Entry e = entry(key);
+		if (e==null){
+			Supplier<? extends List<?>> loader = loader(key);
+			synchronized(lock(key)){
+				e = entry(key);
+				if (e==null){
+					e = load(key, loader, version(key));
+				}
+			}
+		}else if (System.currentTimeMillis() - e.loadedAt > ttlMillis && e.refreshing.compareAndSet(false, true)){
+			refresh(key, e);
+		}
+		return (List<T>)e.list;
+	}
+	/**
+	 * 選択リスト破棄. 次の get で読込む。
+	 * @param key キー
+	 */
+	public void invalidate(String key){
+		synchronized(entries){
+			entries.remove(key);
+			versions.merge(key, 1L, Long::sum);
+		}
+	}
+	/**
+	 * 全ての選択リスト破棄.
+	 */
+	public void clear(){
+		synchronized(entries){
+			entries.clear();
+			generation++;
+		}
+	}
+	/**
+	 * キャッシュした選択リストを参照する Model 生成.
+	 * @param key キー
+	 * @return ChoiceListModel
+	 */
+	public static <T> ChoiceListModel<T> model(String key){
+		return new ChoiceListModel<>(key);
+	}
+
+	private Entry entry(String key){
+		synchronized(entries){
+			return entries.get(key);
+		}
+	}
+	private Object lock(String key){
+		return locks.computeIfAbsent(key, k->new Object());
+	}
+	/**
+	 * 読込み開始時点の版. 読込み中に invalidate、clear されていないか load で比較する。
+	 */
+	private long[] version(String key){
+		synchronized(entries){
+			return new long[]{ versions.getOrDefault(key, 0L), generation };
+		}
+	}
+	private Supplier<? extends List<?>> loader(String key){
+		Supplier<? extends List<?>> loader = loaders.get(key);
+		if (loader==null) throw new IllegalArgumentException("ChoiceListCache key not registered : " + key);
+		return loader;
+	}
+	/**
+	 * 読込み. 読込み中に破棄された場合、結果は返すが保持しない。
+	 */
+	private Entry load(String key, Supplier<? extends List<?>> loader, long[] version){
+		List<?> list = loader.get();
+		Entry e = new Entry(list==null ? Collections.emptyList() : Collections.unmodifiableList(list));
+		synchronized(entries){
+			if (versions.getOrDefault(key, 0L)==version[0] && generation==version[1]){
+				entries.put(key, e);
+			}
+		}
+		return e;
+	}
+	private void refresh(String key, Entry current){
+		Supplier<? extends List<?>> loader = loaders.get(key);
+		if (loader==null) return;
+		long[] version = version(key);
+		try{
+			refresher.execute(()->{
+				try{
+					synchronized(lock(key)){
+						load(key, loader, version);
+					}
+				}catch(RuntimeException ex){
+					logger.warn("ChoiceListCache refresh failed : " + key, ex);
+					current.refreshing.set(false);
+				}
+			});
+		}catch(RuntimeException ex){
+			// アプリケーション終了後は読込み直さない
+			current.refreshing.set(false);
+		}
+	}
+
+	/** 保持する選択リスト. */
+	private static final class Entry{
+		private final List<?> list;
+		private final long loadedAt;
+		private final AtomicBoolean refreshing = new AtomicBoolean(false);
+		private Entry(List<?> list){
+			this.list = list;
+			this.loadedAt = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * ChoiceListCache の選択リストを参照する Model.
+	 * <PRE>
+	 * キーだけを保持して、リクエスト毎に ChoiceListCache から選択リストを取得する。
+	 * </PRE>
+	 * @param <T> 選択リストの要素型
+	 */
+	public static class ChoiceListModel<T> extends LoadableDetachableModel<List<T>>{
+		private static final long serialVersionUID = 1L;
+		private final String key;
+		/**
+		 * コンストラクタ.
+		 * @param key キー
+		 */
+		public ChoiceListModel(String key){
+			this.key = key;
+		}
+		/**
+		 * @return キー
+		 */
+		public String getKey(){
+			return key;
+		}
+		@Override
+		protected List<T> load(){
+			return ChoiceListCache.get().get(key);
+		}
+	}
+}
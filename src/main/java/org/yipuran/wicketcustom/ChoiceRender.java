@@ -17,6 +17,19 @@ import org.danekja.java.util.function.serializable.SerializableFunction;
  * final DropDownChoice<String> selectChar = new DropDownChoice<String>("select2", new Model<>(), Arrays.asList("a","b","c")
  *    , ChoiceRender.of(t->t, t->t, (t,u)->t.equals(u)) ) ;
  * queue(selectChar);
+ *
+ * 選択リストが大きい場合は ofIndexed で生成する。
+ * getObject の度にリストを走査せず、選択リスト１つに対して id → 要素 のインデックスを一度だけ作成して解決する。
+ * インデックスは同じ選択リストインスタンスを２回目に解決する時に作成する。選択リストのインスタンスまたはサイズが
+ * 変わるか、同一サイズのまま書き換えられるとインデックスは作り直される。
+ *
+ * final DropDownChoice<Foo> selectFoo = new DropDownChoice<Foo>("select1", new Model<>(), fooList
+ *    , ChoiceRender.ofIndexed(t->Integer.toString(t.val), t->t.name) ) ;
+ *
+ * DB から読込む選択リスト Model は memoize で包むと、１つのリクエストで読込むのは１回だけになる。
+ *
+ * final DropDownChoice<Foo> selectFoo = new DropDownChoice<Foo>("select1", new Model<>(), ChoiceRender.memoize(()->fooDao.list())
+ *    , ChoiceRender.ofIndexed(t->Integer.toString(t.val), t->t.name) ) ;
  * </PRE>
  */
 public final class ChoiceRender{
@@ -41,4 +54,72 @@ public final class ChoiceRender{
 			}
 		};
 	}
+	/**
+	 * リクエスト単位で選択リストを保持する選択リスト Model 生成.
+	 * @param model 選択リスト Model
+	 * @return RequestChoicesModel
+	 */
+	public static <T> IModel<List<T>> memoize(IModel<? extends List<T>> model){
+		return RequestChoicesModel.of(model);
+	}
+	/**
+	 * インデックス付き IChoiceRenderer 生成.
+	 * <PRE>
+	 * id → 要素 のインデックスで getObject を解決する。id の一致は idfunction の結果の equals で判定する。
+	 * </PRE>
+	 * @param idfunction 要素から optionタグ value 属性値を求める Function
+	 * @param displayfunction 要素から表示値を求める Function
+	 * @return IChoiceRenderer
+	 */
+	public static <T> IChoiceRenderer<T> ofIndexed(SerializableFunction<T, String> idfunction
+			, SerializableFunction<T, String> displayfunction
+	){
+		return ofIndexed(idfunction, displayfunction, (t, u)->u != null && u.equals(idfunction.apply(t)));
+	}
+	/**
+	 * インデックス付き IChoiceRenderer 生成（判定 BiPredicate 指定）.
+	 * <PRE>
+	 * インデックスで見つけた要素は bipredicate で確認し、見つからない、または bipredicate が false の場合は
+	 * of で生成した場合と同じく bipredicate による走査で解決する。
+	 * id の等価で判定できない bipredicate であっても結果は変わらない。
+	 * </PRE>
+	 * @param idfunction 要素から optionタグ value 属性値を求める Function
+	 * @param displayfunction 要素から表示値を求める Function
+	 * @param bipredicate 要素と id の一致判定
+	 * @return IChoiceRenderer
+	 */
+	public static <T> IChoiceRenderer<T> ofIndexed(SerializableFunction<T, String> idfunction
+			, SerializableFunction<T, String> displayfunction
+			, SerializableBiPredicate<T, String> bipredicate
+	){
+		return new IChoiceRenderer<T>(){
+			private transient volatile ChoiceIndex<T> index;
+			private ChoiceIndex<T> index(){
+				ChoiceIndex<T> idx = index;
+				if (idx==null){
+					idx = ChoiceIndex.of(idfunction);
+					index = idx;
+				}
+				return idx;
+			}
+			@Override
+			public Object getDisplayValue(T t){
+				return displayfunction.apply(t);
+			}
+			@Override
+			public String getIdValue(T t, int index){
+				return idfunction.apply(t);
+			}
+			@Override
+			public T getObject(String id, IModel<? extends List<? extends T>> choices){
+				List<? extends T> list = choices.getObject();
+				if (list==null) return null;
+				T t = index().get(list, id);
+				if (t != null && bipredicate.test(t, id)){
+					return t;
+				}
+				return list.stream().filter(e->bipredicate.test(e, id)).findFirst().orElse(null);
+			}
+		};
+	}
 }
@@ -0,0 +1,132 @@
+package org.yipuran.wicketcustom;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.markup.html.form.IChoiceRenderer;
+import org.apache.wicket.model.IModel;
+import org.danekja.java.util.function.serializable.SerializableFunction;
+
+/**
+ * enum 型 DropDownChoice 用 IChoiceRenderer（ordinal を value 属性とする）.
+ * <PRE>
+ * optionタグ value 属性を enum の ordinal とする。Wicket の EnumChoiceRenderer（name() を value 属性とする）とは異なる。
+ * ordinal は enum 定数の宣言順で決まるので、描画から送信までの間に定数の並びが変わる（再デプロイ等）と
+ * 別の定数に解決される。定数の並びが変わり得る enum には name() を value 属性とする Renderer を使うこと。
+ * getObject は送信値を一度だけ int に変換して ordinal → リスト位置 の表から解決し、
+ * 見つけた位置の要素を確認するので、要素数に比例したオブジェクト生成は発生しない。
+ * 選択リストのインスタンスまたはサイズが変わるか、表と一致しない場合は表を作り直す。
+ *
+ * （例）
+ * new DropDownChoice<Color>("select", new Model<>(), Arrays.asList(Color.values()), EnumOrdinalChoiceRenderer.of(Color.class, e->e.label));
+ *
+ * </PRE>
+ * @param <E> enum
+ */
+public class EnumOrdinalChoiceRenderer<E extends Enum<E>> implements IChoiceRenderer<E>{
+	private static final long serialVersionUID = 1L;
+	private final Class<E> type;
+	private final SerializableFunction<? super E, ?> displayfunction;
+	private transient E[] constants;
+	private transient volatile Positions positions;
+
+	/**
+	 * コンストラクタ（表示値は name()）.
+	 * @param type enum の Class
+	 */
+	public EnumOrdinalChoiceRenderer(Class<E> type){
+		this(type, Enum::name);
+	}
+	/**
+	 * コンストラクタ.
+	 * @param type enum の Class
+	 * @param displayfunction 要素から表示値を求める Function
+	 */
+	public EnumOrdinalChoiceRenderer(Class<E> type, SerializableFunction<? super E, ?> displayfunction){
+		this.type = type;
+		this.displayfunction = displayfunction;
+	}
+	/**
+	 * EnumOrdinalChoiceRenderer 生成.
+	 * @param type enum の Class
+	 * @param displayfunction 要素から表示値を求める Function
+	 * @return EnumOrdinalChoiceRenderer
+	 */
+	public static <E extends Enum<E>> EnumOrdinalChoiceRenderer<E> of(Class<E> type, SerializableFunction<? super E, ?> displayfunction){
+		return new EnumOrdinalChoiceRenderer<>(type, displayfunction);
+	}
+	@Override
+	public Object getDisplayValue(E e){
+		return displayfunction.apply(e);
+	}
+	@Override
+	public String getIdValue(E e, int index){
+		return PrimitiveChoiceIndex.toId(e.ordinal());
+	}
+	@Override
+	public E getObject(String value, IModel<? extends List<? extends E>> model){
+		if (value==null || value.isEmpty()) return null;
+		List<? extends E> list = model.getObject();
+		if (list==null) return null;
+		int ordinal;
+		try{
+			ordinal = Integer.parseInt(value);
+		}catch(NumberFormatException ex){
+			return null;
+		}
+		E[] ec = constants;
+		if (ec==null){
+			ec = type.getEnumConstants();
+			constants = ec;
+		}
+		if (ordinal < 0 || ordinal >= ec.length) return null;
+		E e = ec[ordinal];
+		Positions p = positions;
+		boolean rebuilt = false;
+		if (p==null || !p.isFor(list)){
+			p = new Positions(list, ec.length);
+			positions = p;
+			rebuilt = true;
+		}
+		if (p.contains(list, e)) return e;
+		if (rebuilt) return null;
+		// 同一サイズのままリストが書き換えられている
+		p = new Positions(list, ec.length);
+		positions = p;
+		return p.contains(list, e) ? e : null;
+	}
+	/**
+	 * ordinal の表破棄. 次の getObject で作り直す。
+	 */
+	public void invalidate(){
+		positions = null;
+	}
+
+	/** ordinal → 選択リスト位置 の表. */
+	private static final class Positions{
+		private final WeakReference<List<?>> listRef;
+		private final int size;
+		/** リスト位置、-1 は選択リストに含まれない */
+		private final int[] positions;
+
+		private Positions(List<? extends Enum<?>> list, int length){
+			listRef = new WeakReference<>(list);
+			size = list.size();
+			positions = new int[length];
+			Arrays.fill(positions, -1);
+			int i = 0;
+			for(Enum<?> e : list){
+				if (e != null && positions[e.ordinal()] < 0) positions[e.ordinal()] = i;
+				i++;
+			}
+		}
+		private boolean contains(List<?> list, Enum<?> e){
+			int position = positions[e.ordinal()];
+			return position >= 0 && list.get(position)==e;
+		}
+		private boolean isFor(List<?> list){
+			return listRef.get()==list && size==list.size();
+		}
+	}
+}
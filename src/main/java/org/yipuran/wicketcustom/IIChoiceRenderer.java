@@ -9,6 +9,7 @@ import org.apache.wicket.model.IModel;
  * IChoiceRendererの拡張. IChoiceRendererの getDisplayValue をラムダ式で使う目的
  * <PRE>
  * XDropDownChoice（DropDownChoiceの拡張）をIChoiceRendererの getDisplayValue をラムダ式で書く為の関数型インターフェース
+ * getObject は選択リストを走査する。選択リストが大きい場合は IndexedChoiceRenderer を使用する。
  * </PRE>
  * @param <T>
  */
@@ -0,0 +1,69 @@
+package org.yipuran.wicketcustom;
+
+import java.util.List;
+
+import org.apache.wicket.model.IModel;
+import org.danekja.java.util.function.serializable.SerializableFunction;
+
+/**
+ * インデックス付き IIChoiceRenderer.
+ * <PRE>
+ * IIChoiceRenderer の getObject は選択リストを毎回先頭から走査するが、
+ * 本クラスは選択リスト１つに対して getOptionValue() → 要素 のインデックスを一度だけ作成して O(1) で解決する。
+ * インデックスは同じ選択リストインスタンスを２回目に解決する時に作成し、見つけた要素は id を確認してから返す。
+ * 選択リストのインスタンスまたはサイズが変わるとインデックスは作り直される。
+ * 同じリストインスタンスのまま新しい id の要素に入れ替える場合は、invalidate() を実行すること。
+ *
+ * （例）
+ * final XDropDownChoice<Item> select_item = new XDropDownChoice<Item>("select_item", new Model<Item>(), createItemList()
+ *    , IndexedChoiceRenderer.of(e->e.name) );
+ * </PRE>
+ * @param <T> ChoiceValue
+ */
+public class IndexedChoiceRenderer<T extends ChoiceValue> implements IIChoiceRenderer<T>{
+	private static final long serialVersionUID = 1L;
+	private final SerializableFunction<? super T, ?> displayfunction;
+	private transient volatile ChoiceIndex<T> index;
+
+	/**
+	 * コンストラクタ.
+	 * @param displayfunction 要素から表示値を求める Function
+	 */
+	public IndexedChoiceRenderer(SerializableFunction<? super T, ?> displayfunction){
+		this.displayfunction = displayfunction;
+	}
+	/**
+	 * IndexedChoiceRenderer 生成.
+	 * @param displayfunction 要素から表示値を求める Function
+	 * @return IndexedChoiceRenderer
+	 */
+	public static <T extends ChoiceValue> IndexedChoiceRenderer<T> of(SerializableFunction<? super T, ?> displayfunction){
+		return new IndexedChoiceRenderer<>(displayfunction);
+	}
+	@Override
+	public Object getDisplayValue(T t){
+		return displayfunction.apply(t);
+	}
+	@Override
+	public T getObject(String value, IModel<? extends List<? extends T>> models){
+		if (value==null) return null;
+		List<? extends T> list = models.getObject();
+		if (list==null) return null;
+		ChoiceIndex<T> idx = index;
+		if (idx==null){
+			idx = ChoiceIndex.of(ChoiceValue::getOptionValue);
+			index = idx;
+		}
+		return idx.get(list, value);
+	}
+	/**
+	 * インデックス破棄. 次の getObject でインデックスを作り直す。
+	 * 同一サイズのまま新しい id の要素に置き換えた選択リストでは、置き換えた後に実行する。
+	 */
+	public void invalidate(){
+		ChoiceIndex<T> idx = index;
+		if (idx != null){
+			idx.clear();
+		}
+	}
+}
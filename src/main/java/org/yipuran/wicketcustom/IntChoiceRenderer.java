@@ -0,0 +1,23 @@
+package org.yipuran.wicketcustom;
+
+/**
+ * int 値 DropDownChoice 用 IChoiceRenderer.
+ * <PRE>
+ * IntegerChoiceRenderer と同じく optionタグ value 属性を Integer 値とするが、
+ * getObject で要素毎に文字列を生成して比較せず、送信値を一度だけ int に変換してインデックスで解決する。
+ * 選択リストのインスタンスまたはサイズが変わるとインデックスは作り直される。
+ *
+ * （例） 整数１～１２までの DropDownChoice
+ *
+ * new DropDownChoice<>("select", new Model<>(), IntStream.rangeClosed(1, 12).boxed().collect(Collectors.toList()), new IntChoiceRenderer());
+ *
+ * </PRE>
+ */
+public class IntChoiceRenderer extends PrimitiveChoiceRenderer<Integer>{
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected long parse(String value){
+		return Integer.parseInt(value);
+	}
+}
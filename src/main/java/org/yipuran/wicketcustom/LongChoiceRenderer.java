@@ -0,0 +1,22 @@
+package org.yipuran.wicketcustom;
+
+/**
+ * long 値 DropDownChoice 用 IChoiceRenderer.
+ * <PRE>
+ * optionタグ value 属性を Long 値とする。
+ * getObject は送信値を一度だけ long に変換してインデックスで解決する。
+ * 選択リストのインスタンスまたはサイズが変わるとインデックスは作り直される。
+ *
+ * （例）
+ * new DropDownChoice<Long>("select", new Model<>(), codeList, new LongChoiceRenderer());
+ *
+ * </PRE>
+ */
+public class LongChoiceRenderer extends PrimitiveChoiceRenderer<Long>{
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected long parse(String value){
+		return Long.parseLong(value);
+	}
+}
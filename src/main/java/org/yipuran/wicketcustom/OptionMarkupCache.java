@@ -0,0 +1,155 @@
+package org.yipuran.wicketcustom;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.util.string.AppendingStringBuffer;
+
+/**
+ * アプリケーション共通 option タグ描画結果キャッシュ.
+ * <PRE>
+ * XDropDownChoice の setOptionCacheKey で有効にする。
+ * 選択リストのキー、表示方法のキー、ロケール毎に option タグの描画結果を保持する。
+ * 保持する数が上限を超えると、最も長く参照されていない描画結果から破棄する。
+ * install しないで使用した場合は、上限 256 で生成される。
+ *
+ * （例）
+ * WebApplication の init() で
+ *    OptionMarkupCache.install(this, 500);
+ *
+ * 選択リストの内容が変わった時は
+ *    OptionMarkupCache.get().invalidate("prefecture");
+ * </PRE>
+ */
+public final class OptionMarkupCache{
+	private static final MetaDataKey<OptionMarkupCache> KEY = new MetaDataKey<OptionMarkupCache>(){
+		private static final long serialVersionUID = 1L;
+	};
+	private static final int DEFAULT_MAX_SIZE = 256;
+	private static final char SEPARATOR = '\u0000';
+
+	private final Map<String, Markup> markups;
+
+	private OptionMarkupCache(int maxSize){
+		markups = new LinkedHashMap<String, Markup>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Markup> eldest){
+				return size() > maxSize;
+			}
+		};
+	}
+	/**
+	 * OptionMarkupCache をアプリケーションに登録.
+	 * @param application Application
+	 * @param maxSize 保持する描画結果数の上限
+	 * @return OptionMarkupCache
+	 */
+	public static OptionMarkupCache install(Application application, int maxSize){
+		if (maxSize < 1) throw new IllegalArgumentException("maxSize must be greater than 0");
+		OptionMarkupCache cache = new OptionMarkupCache(maxSize);
+		application.setMetaData(KEY, cache);
+		return cache;
+	}
+	/**
+	 * 現在のアプリケーションの OptionMarkupCache 取得.
+	 * @return OptionMarkupCache
+	 */
+	public static OptionMarkupCache get(){
+		Application application = Application.get();
+		OptionMarkupCache cache = application.getMetaData(KEY);
+		if (cache==null){
+			synchronized(OptionMarkupCache.class){
+				cache = application.getMetaData(KEY);
+				if (cache==null){
+					cache = install(application, DEFAULT_MAX_SIZE);
+				}
+			}
+		}
+		return cache;
+	}
+	/**
+	 * 描画結果取得. 保持していなければ render で描画して保持する。
+	 * @param choicesKey 選択リストのキー
+	 * @param variant 表示方法のキー、ロケール等を表す文字列
+	 * @param render 描画処理
+	 * @return option タグの描画結果
+	 */
+	Markup get(String choicesKey, String variant, Function<String, Markup> render){
+		String key = choicesKey + SEPARATOR + variant;
+		Markup markup;
+		synchronized(markups){
+			markup = markups.get(key);
+		}
+		if (markup==null){
+			markup = render.apply(key);
+			synchronized(markups){
+				markups.put(key, markup);
+			}
+		}
+		return markup;
+	}
+	/**
+	 * 選択リストのキーの描画結果を破棄.
+	 * @param choicesKey 選択リストのキー
+	 */
+	public void invalidate(String choicesKey){
+		String prefix = choicesKey + SEPARATOR;
+		synchronized(markups){
+			markups.keySet().removeIf(k->k.startsWith(prefix));
+		}
+	}
+	/**
+	 * 全ての描画結果を破棄.
+	 */
+	public void clear(){
+		synchronized(markups){
+			markups.clear();
+		}
+	}
+
+	/**
+	 * option タグの描画結果.
+	 * value 属性値毎に "&lt;option " の直後の位置を保持して、selected 属性を文字列検索なしで挿入する。
+	 */
+	static final class Markup{
+		private final String markup;
+		private final Map<String, Integer> positions;
+
+		Markup(String markup, Map<String, Integer> positions){
+			this.markup = markup;
+			this.positions = positions;
+		}
+		/**
+		 * @return 描画結果の長さ
+		 */
+		int length(){
+			return markup.length();
+		}
+		/**
+		 * value 属性値 → 属性を挿入する位置.
+		 * @param value value 属性値
+		 * @return "&lt;option " の直後の位置、該当する option タグが無ければ -1
+		 */
+		int positionOf(String value){
+			Integer position = positions.get(value);
+			return position==null ? -1 : position;
+		}
+		/**
+		 * 描画結果を追加.
+		 * @param buffer 追加先
+		 * @param at attribute を挿入する位置、-1 は挿入しない
+		 * @param attribute 挿入する属性
+		 */
+		void appendTo(AppendingStringBuffer buffer, int at, String attribute){
+			if (at < 0){
+				buffer.append(markup);
+			}else{
+				buffer.append(markup.substring(0, at)).append(attribute).append(markup.substring(at));
+			}
+		}
+	}
+}
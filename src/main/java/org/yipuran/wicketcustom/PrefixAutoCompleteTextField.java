@@ -0,0 +1,101 @@
+package org.yipuran.wicketcustom;
+
+import java.util.Iterator;
+import java.util.Locale;
+
+import org.apache.wicket.extensions.ajax.markup.html.autocomplete.AbstractAutoCompleteTextRenderer;
+import org.apache.wicket.extensions.ajax.markup.html.autocomplete.AutoCompleteSettings;
+import org.apache.wicket.extensions.ajax.markup.html.autocomplete.AutoCompleteTextField;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.convert.ConversionException;
+import org.apache.wicket.util.convert.IConverter;
+import org.danekja.java.util.function.serializable.SerializableSupplier;
+
+/**
+ * 前方一致インデックスによる AutoCompleteTextField.
+ * <PRE>
+ * 入力毎に PrefixChoiceIndex で前方一致する上位の要素を候補として表示する。
+ * 送信された文字列は、表示値または getOptionValue() に一致する要素に変換する。一致しなければ変換エラーになる。
+ * PrefixChoiceIndex は SerializableSupplier で渡すので、ページにシリアライズされない。
+ *
+ * （例）
+ * queue(new PrefixAutoCompleteTextField<Item>("item", new Model<Item>(), ()->MyApplication.get().getItemIndex()).setMaxChoices(20));
+ * </PRE>
+ * @param <T> ChoiceValue
+ */
+public class PrefixAutoCompleteTextField<T extends ChoiceValue> extends AutoCompleteTextField<T>{
+	private static final long serialVersionUID = 1L;
+	private final SerializableSupplier<PrefixChoiceIndex<T>> index;
+	private int maxChoices = 10;
+	private final IConverter<T> converter = new IConverter<T>(){
+		private static final long serialVersionUID = 1L;
+		@Override
+		public T convertToObject(String value, Locale locale) throws ConversionException{
+			if (value==null || value.trim().isEmpty()) return null;
+			T t = index.get().find(value.trim());
+			if (t==null){
+				throw new ConversionException("no choice matches : " + value).setSourceValue(value);
+			}
+			return t;
+		}
+		@Override
+		public String convertToString(T t, Locale locale){
+			return t==null ? null : index.get().display(t);
+		}
+	};
+
+	/**
+	 * コンストラクタ.
+	 * @param id Wicket-ID
+	 * @param model 選択値Model
+	 * @param index PrefixChoiceIndex の Supplier
+	 */
+	public PrefixAutoCompleteTextField(String id, IModel<T> model, SerializableSupplier<PrefixChoiceIndex<T>> index){
+		this(id, model, index, new AutoCompleteSettings());
+	}
+	/**
+	 * コンストラクタ.
+	 * @param id Wicket-ID
+	 * @param model 選択値Model
+	 * @param index PrefixChoiceIndex の Supplier
+	 * @param settings AutoCompleteSettings
+	 */
+	public PrefixAutoCompleteTextField(String id, IModel<T> model, SerializableSupplier<PrefixChoiceIndex<T>> index, AutoCompleteSettings settings){
+		super(id, model, null, new AbstractAutoCompleteTextRenderer<T>(){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected String getTextValue(T t){
+				return index.get().display(t);
+			}
+		}, settings);
+		this.index = index;
+	}
+	/**
+	 * 候補の最大件数設定. デフォルトは 10
+	 * @param maxChoices 最大件数
+	 * @return PrefixAutoCompleteTextField
+	 */
+	public PrefixAutoCompleteTextField<T> setMaxChoices(int maxChoices){
+		if (maxChoices > 0){
+			this.maxChoices = maxChoices;
+		}
+		return this;
+	}
+	@Override
+	protected Iterator<T> getChoices(String input){
+		return index.get().search(input, 0, maxChoices).iterator();
+	}
+	@Override
+	protected T convertValue(String[] value) throws ConversionException{
+		String s = value==null || value.length==0 ? null : value[0];
+		return converter.convertToObject(s, getLocale());
+	}
+	@SuppressWarnings("unchecked")
+	@Override
+	public <C> IConverter<C> getConverter(Class<C> type){
+		if (type != null && ChoiceValue.class.isAssignableFrom(type)){
+			return (IConverter<C>)converter;
+		}
+		return super.getConverter(type);
+	}
+}
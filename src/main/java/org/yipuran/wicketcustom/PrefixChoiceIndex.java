@@ -0,0 +1,189 @@
+package org.yipuran.wicketcustom;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.danekja.java.util.function.serializable.SerializableSupplier;
+
+/**
+ * ChoiceValue 選択リストの前方一致インデックス.
+ * <PRE>
+ * getOptionValue() と表示値をキーにしたソート済配列を一度だけ生成して、
+ * 入力文字列の前方一致検索を二分探索で行う。選択リストを走査しないので、大きな選択リストでも
+ * 検索時間は一致した件数（上位 N 件）にしか比例しない。
+ * キーは NFKC 正規化（全角英数→半角等）して小文字にしたもので比較する。
+ * 生成後は変更されないので、アプリケーション共通で全てのセッションから同時に使用できる。
+ * ページにシリアライズされないよう、コンポーネントへは SerializableSupplier で渡す。
+ *
+ * （例）
+ * WebApplication で
+ *    private volatile PrefixChoiceIndex<Item> itemIndex = PrefixChoiceIndex.of(itemDao.list(), e->e.name);
+ *    public PrefixChoiceIndex<Item> getItemIndex(){ return itemIndex; }
+ *
+ * WebPage で
+ *    queue(new PrefixAutoCompleteTextField<Item>("item", new Model<Item>(), ()->MyApplication.get().getItemIndex()));
+ *    queue(new SearchDropDownChoice<Item>("item_select", new Model<Item>()
+ *       , PrefixChoiceIndex.provider(()->MyApplication.get().getItemIndex()), e->e.name));
+ * </PRE>
+ * @param <T> ChoiceValue
+ */
+public final class PrefixChoiceIndex<T extends ChoiceValue>{
+	private final List<T> list;
+	private final Function<? super T, String> displayfunction;
+	/** 正規化したキーのソート済配列 */
+	private final String[] keys;
+	/** keys に対応する list の位置 */
+	private final int[] positions;
+	private final Map<String, T> byOptionValue;
+	private final Map<String, T> byDisplay;
+
+	private PrefixChoiceIndex(List<? extends T> choices, Function<? super T, String> displayfunction){
+		this.list = Collections.unmodifiableList(new ArrayList<T>(choices));
+		this.displayfunction = displayfunction;
+		int size = list.size();
+		String[] k = new String[size * 2];
+		Integer[] order = new Integer[size * 2];
+		byOptionValue = new HashMap<>(Math.max(16, (int)(size / 0.75f) + 1));
+		byDisplay = new HashMap<>(Math.max(16, (int)(size / 0.75f) + 1));
+		int n = 0;
+		for(int i=0; i < size; i++){
+			T t = list.get(i);
+			String value = t.getOptionValue();
+			String display = displayfunction.apply(t);
+			if (value != null){
+				byOptionValue.putIfAbsent(value, t);
+				k[n] = normalize(value);
+				order[n] = i;
+				n++;
+			}
+			if (display != null){
+				byDisplay.putIfAbsent(display, t);
+				String nd = normalize(display);
+				if (value==null || !nd.equals(k[n - 1])){
+					k[n] = nd;
+					order[n] = i;
+					n++;
+				}
+			}
+		}
+		Integer[] idx = new Integer[n];
+		for(int i=0; i < n; i++) idx[i] = i;
+		Arrays.sort(idx, (a, b)->{
+			int c = k[a].compareTo(k[b]);
+			return c != 0 ? c : Integer.compare(order[a], order[b]);
+		});
+		keys = new String[n];
+		positions = new int[n];
+		for(int i=0; i < n; i++){
+			keys[i] = k[idx[i]];
+			positions[i] = order[idx[i]];
+		}
+	}
+	/**
+	 * PrefixChoiceIndex 生成.
+	 * @param choices 選択リスト
+	 * @param displayfunction 要素から表示値を求める Function
+	 * @return PrefixChoiceIndex
+	 */
+	public static <T extends ChoiceValue> PrefixChoiceIndex<T> of(List<? extends T> choices, Function<? super T, String> displayfunction){
+		return new PrefixChoiceIndex<>(choices, displayfunction);
+	}
+	/**
+	 * 前方一致検索.
+	 * getOptionValue() または表示値が入力文字列で始まる要素を、キーの昇順に返す。
+	 * @param term 入力文字列、空文字は全件が対象
+	 * @param first 先頭からのオフセット
+	 * @param count 最大件数
+	 * @return 一致した要素のリスト
+	 */
+	public List<T> search(String term, int first, int count){
+		String prefix = term==null ? "" : normalize(term);
+		List<T> result = new ArrayList<>(Math.min(count, 64));
+		Set<Integer> seen = new HashSet<>();
+		int skip = first;
+		for(int i = lowerBound(prefix); i < keys.length && result.size() < count && keys[i].startsWith(prefix); i++){
+			if (!seen.add(positions[i])) continue;
+			if (skip > 0){
+				skip--;
+				continue;
+			}
+			result.add(list.get(positions[i]));
+		}
+		return result;
+	}
+	/**
+	 * getOptionValue() → 要素.
+	 * @param optionValue optionタグ value 属性値
+	 * @return 要素、存在しなければ null
+	 */
+	public T resolve(String optionValue){
+		return optionValue==null ? null : byOptionValue.get(optionValue);
+	}
+	/**
+	 * 表示値または getOptionValue() に一致する要素.
+	 * @param text 表示値または optionタグ value 属性値
+	 * @return 要素、存在しなければ null
+	 */
+	public T find(String text){
+		if (text==null) return null;
+		T t = byDisplay.get(text);
+		return t != null ? t : byOptionValue.get(text);
+	}
+	/**
+	 * 表示値.
+	 * @param t 要素
+	 * @return 表示値
+	 */
+	public String display(T t){
+		return displayfunction.apply(t);
+	}
+	/**
+	 * @return 変更不可の選択リスト
+	 */
+	public List<T> getList(){
+		return list;
+	}
+	/**
+	 * PrefixChoiceIndex で検索する SearchChoiceProvider 生成.
+	 * @param supplier PrefixChoiceIndex の Supplier
+	 * @return SearchChoiceProvider
+	 */
+	public static <T extends ChoiceValue> SearchChoiceProvider<T> provider(SerializableSupplier<PrefixChoiceIndex<T>> supplier){
+		return new SearchChoiceProvider<T>(){
+			private static final long serialVersionUID = 1L;
+			@Override
+			public List<T> search(String term, int first, int count){
+				return supplier.get().search(term, first, count);
+			}
+			@Override
+			public T resolve(String optionValue){
+				return supplier.get().resolve(optionValue);
+			}
+		};
+	}
+	private int lowerBound(String prefix){
+		int low = 0;
+		int high = keys.length;
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			if (keys[mid].compareTo(prefix) < 0){
+				low = mid + 1;
+			}else{
+				high = mid;
+			}
+		}
+		return low;
+	}
+	private static String normalize(String s){
+		return Normalizer.normalize(s, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+	}
+}
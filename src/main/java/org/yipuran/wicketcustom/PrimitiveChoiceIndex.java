@@ -0,0 +1,122 @@
+package org.yipuran.wicketcustom;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+/**
+ * 整数型 選択リストのインデックス.
+ * <PRE>
+ * long キー → リスト位置 のオープンアドレス法ハッシュ表と、リスト位置 → optionタグ value 属性値 の文字列表を持つ。
+ * キーをボクシングしないので、getObject の解決で選択リストの要素数に比例したオブジェクト生成は発生しない。
+ * 生成元のリストインスタンスとサイズを保持して、isFor で同じリストに対するインデックスか判定する。
+ * 同じキーの要素が複数ある場合は、リスト先頭側の位置を優先する。
+ * </PRE>
+ */
+final class PrimitiveChoiceIndex{
+	private static final int ID_CACHE_SIZE = 4096;
+	private static final String[] ID_CACHE = new String[ID_CACHE_SIZE];
+
+	private final WeakReference<List<?>> listRef;
+	private final int size;
+	private final int mask;
+	private final long[] keys;
+	/** リスト位置 + 1、0 は空き */
+	private final int[] positions;
+	private final long[] values;
+	private final boolean[] nulls;
+	private final String[] ids;
+
+	private PrimitiveChoiceIndex(List<? extends Number> list){
+		listRef = new WeakReference<>(list);
+		size = list.size();
+		int capacity = Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1;
+		mask = capacity - 1;
+		keys = new long[capacity];
+		positions = new int[capacity];
+		values = new long[size];
+		nulls = new boolean[size];
+		ids = new String[size];
+		int i = 0;
+		for(Number n : list){
+			if (n==null){
+				nulls[i] = true;
+			}else{
+				long v = n.longValue();
+				values[i] = v;
+				ids[i] = toId(v);
+				put(v, i);
+			}
+			i++;
+		}
+	}
+	/**
+	 * インデックス生成.
+	 * @param list 選択リスト
+	 * @return PrimitiveChoiceIndex
+	 */
+	static PrimitiveChoiceIndex of(List<? extends Number> list){
+		return new PrimitiveChoiceIndex(list);
+	}
+	/**
+	 * 指定リストに対するインデックスか問い合わせ.
+	 * @param list 選択リスト
+	 * @return true=生成元のリストと同一インスタンスでサイズも変わっていない
+	 */
+	boolean isFor(List<?> list){
+		return listRef.get()==list && size==list.size();
+	}
+	/**
+	 * キー → リスト位置.
+	 * @param key キー
+	 * @return リスト位置、存在しなければ -1
+	 */
+	int positionOf(long key){
+		for(int slot = slot(key);; slot = (slot + 1) & mask){
+			int p = positions[slot];
+			if (p==0) return -1;
+			if (keys[slot]==key) return p - 1;
+		}
+	}
+	/**
+	 * リスト位置の optionタグ value 属性値.
+	 * @param index リスト位置
+	 * @param value 要素の値、インデックス生成時と異なる場合は null を返す
+	 * @return optionタグ value 属性値
+	 */
+	String idAt(int index, long value){
+		if (index < 0 || index >= size || nulls[index] || values[index] != value) return null;
+		return ids[index];
+	}
+	/**
+	 * 整数 → optionタグ value 属性値.
+	 * 0 ～ 4095 は生成済の文字列を返す。
+	 * @param value 整数
+	 * @return 文字列
+	 */
+	static String toId(long value){
+		if (value >= 0 && value < ID_CACHE_SIZE){
+			int i = (int)value;
+			String s = ID_CACHE[i];
+			if (s==null){
+				s = Integer.toString(i);
+				ID_CACHE[i] = s;
+			}
+			return s;
+		}
+		return Long.toString(value);
+	}
+	private void put(long key, int position){
+		for(int slot = slot(key);; slot = (slot + 1) & mask){
+			if (positions[slot]==0){
+				keys[slot] = key;
+				positions[slot] = position + 1;
+				return;
+			}
+			if (keys[slot]==key) return;
+		}
+	}
+	private int slot(long key){
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+}
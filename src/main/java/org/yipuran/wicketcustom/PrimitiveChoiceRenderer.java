@@ -0,0 +1,77 @@
+package org.yipuran.wicketcustom;
+
+import java.util.List;
+
+import org.apache.wicket.markup.html.form.IChoiceRenderer;
+import org.apache.wicket.model.IModel;
+
+/**
+ * 整数型 DropDownChoice 用 IChoiceRenderer の基底.
+ * <PRE>
+ * 送信された value 属性値を一度だけ整数に変換して PrimitiveChoiceIndex で解決する。
+ * value 属性値は PrimitiveChoiceIndex の文字列表から返す。
+ * インデックスで見つからない、または見つけた位置の要素が送信値と異なる場合は、同一サイズのまま
+ * リストが書き換えられている可能性があるのでインデックスを作り直して解決する。
+ * </PRE>
+ * @param <N> Integer または Long
+ */
+public abstract class PrimitiveChoiceRenderer<N extends Number> implements IChoiceRenderer<N>{
+	private static final long serialVersionUID = 1L;
+	private transient volatile PrimitiveChoiceIndex index;
+
+	/**
+	 * value 属性値 → 整数.
+	 * @param value value 属性値
+	 * @return 整数
+	 * @throws NumberFormatException 整数でない
+	 */
+	protected abstract long parse(String value);
+
+	@Override
+	public Object getDisplayValue(N n){
+		return n;
+	}
+	@Override
+	public String getIdValue(N n, int index){
+		long v = n.longValue();
+		PrimitiveChoiceIndex idx = this.index;
+		String id = idx==null ? null : idx.idAt(index, v);
+		return id==null ? PrimitiveChoiceIndex.toId(v) : id;
+	}
+	@Override
+	public N getObject(String value, IModel<? extends List<? extends N>> model){
+		if (value==null || value.isEmpty()) return null;
+		List<? extends N> list = model.getObject();
+		if (list==null) return null;
+		long key;
+		try{
+			key = parse(value);
+		}catch(NumberFormatException e){
+			return null;
+		}
+		PrimitiveChoiceIndex idx = index;
+		boolean rebuilt = false;
+		if (idx==null || !idx.isFor(list)){
+			idx = PrimitiveChoiceIndex.of(list);
+			index = idx;
+			rebuilt = true;
+		}
+		int position = idx.positionOf(key);
+		if (position >= 0){
+			N n = list.get(position);
+			if (n != null && n.longValue()==key) return n;
+		}
+		if (rebuilt) return null;
+		// 同一サイズのままリストが書き換えられている
+		idx = PrimitiveChoiceIndex.of(list);
+		index = idx;
+		position = idx.positionOf(key);
+		return position < 0 ? null : list.get(position);
+	}
+	/**
+	 * インデックス破棄. 次の getObject でインデックスを作り直す。
+	 */
+	public void invalidate(){
+		index = null;
+	}
+}
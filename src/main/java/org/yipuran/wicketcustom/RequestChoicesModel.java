@@ -0,0 +1,61 @@
+package org.yipuran.wicketcustom;
+
+import java.util.List;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+/**
+ * リクエスト単位で選択リストを保持する選択リスト Model.
+ * <PRE>
+ * DropDownChoice は送信値の変換（IChoiceRenderer の getObject）と再描画で選択リスト Model を何度も参照する。
+ * DB から読込む選択リスト Model をこの Model で包むと、１つのリクエストで読込むのは最初の１回だけになる。
+ * 保持した選択リストは detach で解放され、シリアライズされない。
+ * 複数のコンポーネントで同じ RequestChoicesModel インスタンスを使えば、読込みも１回で共有される。
+ *
+ * （例）
+ * final IModel<List<Item>> items = RequestChoicesModel.of(()->itemDao.list());
+ * queue(new XDropDownChoice<Item>("select_item", new Model<Item>(), items, e->e.name ));
+ * </PRE>
+ * @param <T> 選択リストの要素型
+ */
+public class RequestChoicesModel<T> implements IModel<List<T>>{
+	private static final long serialVersionUID = 1L;
+	private final IModel<? extends List<T>> model;
+	private transient List<T> list;
+	private transient RequestCycle cycle;
+
+	/**
+	 * コンストラクタ.
+	 * @param model 選択リスト Model
+	 */
+	public RequestChoicesModel(IModel<? extends List<T>> model){
+		this.model = model;
+	}
+	/**
+	 * RequestChoicesModel 生成.
+	 * @param model 選択リスト Model
+	 * @return RequestChoicesModel
+	 */
+	public static <T> RequestChoicesModel<T> of(IModel<? extends List<T>> model){
+		return new RequestChoicesModel<>(model);
+	}
+	@Override
+	public List<T> getObject(){
+		RequestCycle current = RequestCycle.get();
+		if (current==null){
+			return model.getObject();
+		}
+		if (cycle != current){
+			list = model.getObject();
+			cycle = current;
+		}
+		return list;
+	}
+	@Override
+	public void detach(){
+		list = null;
+		cycle = null;
+		model.detach();
+	}
+}
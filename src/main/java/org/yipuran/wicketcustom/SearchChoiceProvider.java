@@ -0,0 +1,71 @@
+package org.yipuran.wicketcustom;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.wicket.util.io.IClusterable;
+import org.danekja.java.util.function.serializable.SerializableBiPredicate;
+import org.danekja.java.util.function.serializable.SerializableSupplier;
+
+/**
+ * SearchDropDownChoice の選択肢検索.
+ * <PRE>
+ * search で入力文字列に一致する選択肢をページ単位で返し、
+ * resolve で送信された optionタグ value 属性値（ChoiceValue の getOptionValue()）から選択肢を求める。
+ * 選択リスト全体をページに保持しないので、実装は選択リストへの参照をフィールドに持たないこと。
+ *
+ * （例）
+ * SearchChoiceProvider<Item> provider = new SearchChoiceProvider<Item>(){
+ *    ＠Override
+ *    public List<Item> search(String term, int first, int count){
+ *       return itemDao.findByName(term, first, count);
+ *    }
+ *    ＠Override
+ *    public Item resolve(String optionValue){
+ *       return itemDao.findByCode(optionValue);
+ *    }
+ * };
+ * </PRE>
+ * @param <T> ChoiceValue
+ */
+public interface SearchChoiceProvider<T extends ChoiceValue> extends IClusterable{
+	/**
+	 * 選択肢検索.
+	 * @param term 入力文字列、未入力は空文字
+	 * @param first 先頭からのオフセット
+	 * @param count 最大件数
+	 * @return 選択肢リスト
+	 */
+	public List<T> search(String term, int first, int count);
+	/**
+	 * optionタグ value 属性値 → 選択肢.
+	 * @param optionValue value 属性値
+	 * @return 選択肢、存在しなければ null
+	 */
+	public T resolve(String optionValue);
+
+	/**
+	 * 選択リストを走査する SearchChoiceProvider 生成.
+	 * <PRE>
+	 * 選択リストは search, resolve の都度 supplier から取得する。
+	 * supplier はアプリケーション共通のリストを返すなど、選択リストを直接保持しないこと。
+	 * </PRE>
+	 * @param supplier 選択リストの Supplier
+	 * @param matcher 選択肢と入力文字列の一致判定
+	 * @return SearchChoiceProvider
+	 */
+	public static <T extends ChoiceValue> SearchChoiceProvider<T> of(SerializableSupplier<? extends List<? extends T>> supplier
+			, SerializableBiPredicate<? super T, String> matcher){
+		return new SearchChoiceProvider<T>(){
+			private static final long serialVersionUID = 1L;
+			@Override
+			public List<T> search(String term, int first, int count){
+				return supplier.get().stream().filter(e->matcher.test(e, term)).skip(first).limit(count).collect(Collectors.toList());
+			}
+			@Override
+			public T resolve(String optionValue){
+				return supplier.get().stream().filter(e->optionValue.equals(e.getOptionValue())).findFirst().orElse(null);
+			}
+		};
+	}
+}
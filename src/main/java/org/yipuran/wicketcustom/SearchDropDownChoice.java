@@ -0,0 +1,163 @@
+package org.yipuran.wicketcustom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.wicket.behavior.AbstractAjaxBehavior;
+import org.apache.wicket.core.util.string.JavaScriptUtils;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.IRequestParameters;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.handler.TextRequestHandler;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.convert.IConverter;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+
+/**
+ * 検索型 XDropDownChoice.
+ * <PRE>
+ * 選択リスト全体を option タグに出力せず、ページにも保持しない XDropDownChoice
+ * option タグは選択中の１件だけを出力し、select タグの前に検索用 input タグを追加する。
+ * input タグにフォーカス、または入力すると AJAX で SearchChoiceProvider の search を実行して
+ * 一致する選択肢をページ単位で取得し、select タグの一覧をスクロールすると次のページを取得する。
+ * 送信された値は SearchChoiceProvider の resolve で求めた選択肢から IIChoiceRenderer で解決する。
+ * select タグの data-placeholder 属性は、検索用 input タグの placeholder になる。
+ *
+ * (例）
+ * final SearchDropDownChoice<Item> select_item = new SearchDropDownChoice<Item>("select_item", new Model<Item>()
+ *    , SearchChoiceProvider.of(()->ItemMaster.list(), (e, s)->e.name.contains(s)), e->e.name );
+ * </PRE>
+ * @param <T> ChoiceValue
+ */
+public class SearchDropDownChoice<T extends ChoiceValue> extends XDropDownChoice<T>{
+	private static final long serialVersionUID = 1L;
+	private static final ResourceReference JAVASCRIPT = new JavaScriptResourceReference(SearchDropDownChoice.class, "search-dropdown.js");
+
+	private final SearchChoiceProvider<T> provider;
+	private final AbstractAjaxBehavior searchBehavior;
+	private int pageSize = 20;
+	private int delay = 300;
+
+	/**
+	 * コンストラクタ.
+	 * @param id Wicket-ID
+	 * @param model 選択中の選択肢Model
+	 * @param provider SearchChoiceProvider
+	 * @param renderer IChoiceRenderer拡張
+	 */
+	public SearchDropDownChoice(String id, IModel<T> model, SearchChoiceProvider<T> provider, IIChoiceRenderer<? super T> renderer){
+		super(id, model, Collections.<T>emptyList(), renderer);
+		this.provider = provider;
+		setChoices(new SelectedChoicesModel());
+		setOutputMarkupId(true);
+		searchBehavior = new AbstractAjaxBehavior(){
+			private static final long serialVersionUID = 1L;
+			@Override
+			public void onRequest(){
+				IRequestParameters params = getRequest().getQueryParameters();
+				String term = params.getParameterValue("term").toString("");
+				int page = Math.max(0, params.getParameterValue("page").toInt(0));
+				RequestCycle.get().scheduleRequestHandlerAfterCurrent(
+					new TextRequestHandler("application/json", "UTF-8", search(term, page).toString()));
+			}
+			@Override
+			public boolean rendersPage(){
+				return false;
+			}
+		};
+		add(searchBehavior);
+	}
+	/**
+	 * 1ページの件数設定. デフォルトは 20
+	 * @param pageSize 1ページの件数
+	 * @return SearchDropDownChoice
+	 */
+	public SearchDropDownChoice<T> setPageSize(int pageSize){
+		if (pageSize > 0){
+			this.pageSize = pageSize;
+		}
+		return this;
+	}
+	/**
+	 * 入力から検索実行までの待ち時間設定. デフォルトは 300ミリ秒
+	 * @param millis ミリ秒
+	 * @return SearchDropDownChoice
+	 */
+	public SearchDropDownChoice<T> setDelay(int millis){
+		if (millis >= 0){
+			this.delay = millis;
+		}
+		return this;
+	}
+	/**
+	 * 検索結果 JSON 生成.
+	 * @param term 入力文字列
+	 * @param page ページ番号 0～
+	 * @return {"results":[{"id":value属性値, "text":表示値}...], "more":次ページ有無}
+	 */
+	protected JSONObject search(String term, int page){
+		List<T> list = provider.search(term, page * pageSize, pageSize + 1);
+		JSONArray results = new JSONArray();
+		int count = Math.min(list.size(), pageSize);
+		for(int i=0; i < count; i++){
+			T t = list.get(i);
+			results.put(new JSONObject().put("id", getChoiceRenderer().getIdValue(t, i)).put("text", displayValue(t)));
+		}
+		return new JSONObject().put("results", results).put("more", list.size() > pageSize);
+	}
+	@SuppressWarnings("unchecked")
+	private String displayValue(T t){
+		Object o = getChoiceRenderer().getDisplayValue(t);
+		if (o==null) return "";
+		if (o instanceof String) return (String)o;
+		IConverter<Object> converter = (IConverter<Object>)getConverter(o.getClass());
+		return converter.convertToString(o, getLocale());
+	}
+	@Override
+	public void renderHead(IHeaderResponse response){
+		super.renderHead(response);
+		response.render(JavaScriptHeaderItem.forReference(getApplication().getJavaScriptLibrarySettings().getJQueryReference()));
+		response.render(JavaScriptHeaderItem.forReference(JAVASCRIPT));
+		response.render(OnDomReadyHeaderItem.forScript("yipuranSearchChoice.init('" + getMarkupId() + "', '"
+			+ JavaScriptUtils.escapeQuotes(searchBehavior.getCallbackUrl()) + "', " + delay + ", " + Math.min(pageSize, 10) + ");"));
+	}
+
+	/**
+	 * 選択中の選択肢だけの選択リスト.
+	 * 送信値がある時は SearchChoiceProvider の resolve で求めた選択肢、無い時は Model の選択肢を返す。
+	 */
+	private class SelectedChoicesModel implements IModel<List<T>>{
+		private static final long serialVersionUID = 1L;
+		private transient String resolvedValue;
+		private transient List<T> resolved;
+
+		@Override
+		public List<T> getObject(){
+			if (hasRawInput() && getRawInput() != null && !getRawInput().isEmpty()){
+				String value = getRawInput();
+				if (resolved==null || !value.equals(resolvedValue)){
+					List<T> list = new ArrayList<>(1);
+					T t = provider.resolve(value);
+					if (t != null) list.add(t);
+					resolved = list;
+					resolvedValue = value;
+				}
+				return resolved;
+			}
+			T t = getModelObject();
+			return t==null ? Collections.<T>emptyList() : Collections.singletonList(t);
+		}
+		@Override
+		public void detach(){
+			resolved = null;
+			resolvedValue = null;
+		}
+	}
+}
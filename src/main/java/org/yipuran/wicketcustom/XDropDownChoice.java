@@ -1,9 +1,15 @@
 package org.yipuran.wicketcustom;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.MarkupStream;
 import org.apache.wicket.markup.html.form.DropDownChoice;
+import org.apache.wicket.markup.html.form.IChoiceRenderer;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.string.AppendingStringBuffer;
 
 /**
  * DropDownChoiceの拡張.
@@ -11,10 +17,20 @@ import org.apache.wicket.model.IModel;
  * DropDownChoice において、IChoiceRendererの getDisplayValue をラムダ式で書けるようにしたもの
  * (例）
  * final XDropDownChoice<Item> select_item = new XDropDownChoice<Item>("select_item", new Model<Item>(), createItemList(), e->e.name );
+ *
+ * 全ユーザ共通で変わらない選択リストは setOptionCacheKey で選択リストのキーと表示方法のキーを指定すると、
+ * option タグの描画結果を OptionMarkupCache に保持して、描画の度に selected 属性だけを付け替える。
+ * select_item.setOptionCacheKey("item", "item.name");
  * </PRE>
  * @param <T>
  */
 public class XDropDownChoice<T> extends DropDownChoice<T>{
+	/** 選択されない value 属性値 */
+	private static final String NO_SELECTION = "\u0000";
+	private static final String OPTION_START = "<option ";
+	private String optionCacheKey;
+	private String rendererKey;
+
 	/**
 	 * コンストラクタ.
 	 * @param id Wicket-ID
@@ -57,4 +73,96 @@ public class XDropDownChoice<T> extends DropDownChoice<T>{
 	public XDropDownChoice(String id, IModel<? extends List<? extends T>> choices, IIChoiceRenderer<? super T> renderer){
 		super(id, choices, renderer);
 	}
+	/**
+	 * option タグ描画結果キャッシュのキー設定.
+	 * <PRE>
+	 * 選択リストの内容を表すキーを指定すると option タグの描画結果を OptionMarkupCache に保持する。
+	 * 同じ選択リストのキーと表示方法のキーの描画結果は、ロケール、スタイル、バリエーション毎に共有される。
+	 * ラムダ式や ChoiceRender.of 等で生成した IChoiceRenderer は表示する Function が異なってもクラスが同じなので、
+	 * 表示値、value 属性値の求め方が異なる XDropDownChoice には異なる rendererKey を指定すること。
+	 * per-choice の disabled 属性（isDisabled）は描画の度に判定して、disabled の組合せ毎に保持する。
+	 * isDisabled は選択中の値によらず判定し、setOptionAttributes で要素毎の属性を追加しないこと。
+	 * 選択リストの内容が変わる場合は OptionMarkupCache の invalidate を実行すること。
+	 * </PRE>
+	 * @param optionCacheKey 選択リストのキー、null はキャッシュしない
+	 * @param rendererKey 表示値、value 属性値の求め方を表すキー
+	 * @return XDropDownChoice
+	 */
+	public XDropDownChoice<T> setOptionCacheKey(String optionCacheKey, String rendererKey){
+		if (optionCacheKey != null && rendererKey==null) throw new IllegalArgumentException("rendererKey is required");
+		this.optionCacheKey = optionCacheKey;
+		this.rendererKey = rendererKey;
+		return this;
+	}
+	/**
+	 * @return option タグ描画結果キャッシュのキー
+	 */
+	public String getOptionCacheKey(){
+		return optionCacheKey;
+	}
+	/**
+	 * @return option タグ描画結果キャッシュの表示方法のキー
+	 */
+	public String getRendererKey(){
+		return rendererKey;
+	}
+	@Override
+	public void onComponentTagBody(MarkupStream markupStream, ComponentTag openTag){
+		if (optionCacheKey==null){
+			super.onComponentTagBody(markupStream, openTag);
+			return;
+		}
+		final String selectedValue = getValue();
+		final List<? extends T> choices = getChoices();
+		String variant = rendererKey + '|' + getLocale() + '|' + getStyle() + '|' + getVariation()
+			+ '|' + getEscapeModelStrings() + '|' + localizeDisplayValues() + '|' + disabledIndexes(choices, selectedValue);
+		OptionMarkupCache.Markup options = OptionMarkupCache.get().get(optionCacheKey, variant, k->renderOptions(choices));
+		final AppendingStringBuffer buffer = new AppendingStringBuffer(options.length() + 64);
+		buffer.append(getDefaultChoice(selectedValue));
+		int at = selectedValue==null ? -1 : options.positionOf(selectedValue);
+		options.appendTo(buffer, at, "selected=\"selected\" ");
+		buffer.append('\n');
+		replaceComponentTagBody(markupStream, openTag, buffer);
+	}
+	/**
+	 * disabled になる選択肢の位置.
+	 * @param choices 選択リスト
+	 * @param selectedValue 選択中の value 属性値
+	 * @return カンマ区切りのリスト位置、disabled が無ければ空文字
+	 */
+	private String disabledIndexes(List<? extends T> choices, String selectedValue){
+		StringBuilder sb = null;
+		for(int index=0; index < choices.size(); index++){
+			if (isDisabled(choices.get(index), index, selectedValue)){
+				if (sb==null){
+					sb = new StringBuilder();
+				}else{
+					sb.append(',');
+				}
+				sb.append(index);
+			}
+		}
+		return sb==null ? "" : sb.toString();
+	}
+	/**
+	 * 選択なしで option タグを描画.
+	 * 選択肢毎に "&lt;option " の直後の位置を value 属性値と共に記録する。
+	 * @param choices 選択リスト
+	 * @return option タグ描画結果
+	 */
+	private OptionMarkupCache.Markup renderOptions(List<? extends T> choices){
+		IChoiceRenderer<? super T> renderer = getChoiceRenderer();
+		AppendingStringBuffer buffer = new AppendingStringBuffer(choices.size() * 50 + 16);
+		Map<String, Integer> positions = new HashMap<>(Math.max(16, (int)(choices.size() / 0.75f) + 1));
+		for(int index=0; index < choices.size(); index++){
+			T choice = choices.get(index);
+			int start = buffer.length();
+			appendOptionHtml(buffer, choice, index, NO_SELECTION);
+			int at = buffer.indexOf(OPTION_START, start);
+			if (at >= 0){
+				positions.putIfAbsent(renderer.getIdValue(choice, index), at + OPTION_START.length());
+			}
+		}
+		return new OptionMarkupCache.Markup(buffer.toString(), positions);
+	}
 }
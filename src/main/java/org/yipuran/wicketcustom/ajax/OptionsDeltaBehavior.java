@@ -0,0 +1,188 @@
+package org.yipuran.wicketcustom.ajax;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.html.form.AbstractChoice;
+import org.apache.wicket.markup.html.form.AbstractSingleSelectChoice;
+import org.apache.wicket.markup.html.form.IChoiceRenderer;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.convert.IConverter;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+
+/**
+ * 選択肢の差分更新ビヘビア.
+ * <PRE>
+ * 連動するドロップダウン等で、AjaxRequestTarget.add で select タグ全体を再送する代わりに
+ * 前回送信した option の value 属性値との差分（追加、削除、並び替え、表示値の変更）だけを JSON で送り、
+ * クライアントで option タグに適用する。
+ * DropDownChoice（XDropDownChoice、ChoiceRender を使う DropDownChoice）に add して、
+ * 選択肢を更新する時に target.add(choice) の代わりに update(target) を実行する。
+ * 先頭の value 属性値が空の option（Choose One 等）は差分の対象外とし、表示の有無が変わる時は select タグ全体を送信する。
+ * 前回送信した表示値は 64bit ハッシュと長さだけを保持して、ページに保存される大きさを抑える。
+ * 表示値の localize（localizeDisplayValues）には対応しない。
+ *
+ * （使用例）
+ * final OptionsDeltaBehavior delta = new OptionsDeltaBehavior();
+ * queue(new XDropDownChoice<City>("city", new Model<>(), cityListModel, e->e.name).add(delta));
+ * queue(new XDropDownChoice<Pref>("pref", new Model<>(), prefList, e->e.name).add(OnChangeAjaxBehavior.onChange(t->{
+ *    delta.update(t);
+ * })));
+ * </PRE>
+ */
+public class OptionsDeltaBehavior extends Behavior{
+	private static final long serialVersionUID = 1L;
+	private static final ResourceReference JAVASCRIPT = new JavaScriptResourceReference(OptionsDeltaBehavior.class, "options-delta.js");
+
+	private Component component;
+	/** 前回送信した value 属性値 */
+	private String[] sentIds;
+	/** 前回送信した表示値の 64bit ハッシュ */
+	private long[] sentDigests;
+	/** 前回送信した表示値の長さ */
+	private int[] sentLengths;
+	/** 前回送信した value 属性値が空の option の有無 */
+	private boolean sentNullOption;
+
+	@Override
+	public void bind(Component component){
+		if (!(component instanceof AbstractChoice)){
+			throw new IllegalArgumentException("OptionsDeltaBehavior can only be added to AbstractChoice : " + component.getClass().getName());
+		}
+		this.component = component;
+		component.setOutputMarkupId(true);
+	}
+	@Override
+	public void renderHead(Component component, IHeaderResponse response){
+		response.render(JavaScriptHeaderItem.forReference(JAVASCRIPT));
+	}
+	@Override
+	public void afterRender(Component component){
+		List<String[]> options = options((AbstractChoice<?, ?>)component);
+		record(options);
+		sentNullOption = hasNullOption((AbstractChoice<?, ?>)component);
+	}
+	/**
+	 * 選択肢の差分を送信.
+	 * 前回送信した選択肢が無い場合、value 属性値が空の option の有無が変わる場合は target.add で select タグ全体を送信する。
+	 * @param target AjaxRequestTarget
+	 */
+	public void update(AjaxRequestTarget target){
+		if (sentIds==null || sentNullOption != hasNullOption((AbstractChoice<?, ?>)component)){
+			target.add(component);
+			return;
+		}
+		List<String[]> options = options((AbstractChoice<?, ?>)component);
+		JSONObject patch = diff(options);
+		patch.put("s", ((AbstractChoice<?, ?>)component).getValue());
+		patch.put("h", !component.getEscapeModelStrings());
+		record(options);
+		target.appendJavaScript("yipuranOptionsDelta.apply('" + component.getMarkupId() + "'," + patch.toString() + ");");
+	}
+
+	private JSONObject diff(List<String[]> options){
+		Map<String, Integer> oldPosition = new HashMap<>(sentIds.length * 2);
+		for(int i=0; i < sentIds.length; i++){
+			oldPosition.putIfAbsent(sentIds[i], i);
+		}
+		Set<String> current = new HashSet<>(options.size() * 2);
+		JSONArray added = new JSONArray();
+		JSONArray updated = new JSONArray();
+		List<String> kept = new ArrayList<>();
+		boolean reordered = false;
+		int last = -1;
+		for(int i=0; i < options.size(); i++){
+			String[] o = options.get(i);
+			current.add(o[0]);
+			Integer p = oldPosition.get(o[0]);
+			if (p==null){
+				added.put(new JSONArray().put(i).put(o[0]).put(o[1]));
+				continue;
+			}
+			kept.add(o[0]);
+			if (p < last) reordered = true;
+			last = p;
+			if (sentLengths[p] != o[1].length() || sentDigests[p] != digest(o[1])){
+				updated.put(new JSONArray().put(o[0]).put(o[1]));
+			}
+		}
+		JSONArray removed = new JSONArray();
+		for(String id : sentIds){
+			if (!current.contains(id)) removed.put(id);
+		}
+		JSONObject patch = new JSONObject();
+		if (removed.length() > 0) patch.put("r", removed);
+		if (updated.length() > 0) patch.put("u", updated);
+		if (reordered) patch.put("o", new JSONArray(kept));
+		if (added.length() > 0) patch.put("a", added);
+		return patch;
+	}
+	private void record(List<String[]> options){
+		sentIds = new String[options.size()];
+		sentDigests = new long[options.size()];
+		sentLengths = new int[options.size()];
+		for(int i=0; i < options.size(); i++){
+			String[] o = options.get(i);
+			sentIds[i] = o[0];
+			sentDigests[i] = digest(o[1]);
+			sentLengths[i] = o[1].length();
+		}
+	}
+	/**
+	 * value 属性値が空の option の有無.
+	 * AbstractSingleSelectChoice の getDefaultChoice と同じく、null を選択できるか未選択の場合に表示される。
+	 * @param choice AbstractChoice
+	 * @return true=表示される
+	 */
+	private static boolean hasNullOption(AbstractChoice<?, ?> choice){
+		if (!(choice instanceof AbstractSingleSelectChoice)) return false;
+		if (((AbstractSingleSelectChoice<?>)choice).isNullValid()) return true;
+		String value = choice.getValue();
+		return value==null || value.isEmpty();
+	}
+	/**
+	 * 表示値の 64bit ハッシュ（FNV-1a）.
+	 * @param text 表示値
+	 * @return ハッシュ
+	 */
+	private static long digest(String text){
+		long h = 0xcbf29ce484222325L;
+		for(int i=0; i < text.length(); i++){
+			h ^= text.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+	@SuppressWarnings("unchecked")
+	private static <E> List<String[]> options(AbstractChoice<?, E> choice){
+		IChoiceRenderer<? super E> renderer = choice.getChoiceRenderer();
+		List<? extends E> choices = choice.getChoices();
+		List<String[]> list = new ArrayList<>(choices.size());
+		for(int i=0; i < choices.size(); i++){
+			E e = choices.get(i);
+			Object o = renderer.getDisplayValue(e);
+			String text;
+			if (o==null){
+				text = "";
+			}else if (o instanceof String){
+				text = (String)o;
+			}else{
+				text = ((IConverter<Object>)choice.getConverter(o.getClass())).convertToString(o, choice.getLocale());
+			}
+			list.add(new String[]{ renderer.getIdValue(e, i), text });
+		}
+		return list;
+	}
+}
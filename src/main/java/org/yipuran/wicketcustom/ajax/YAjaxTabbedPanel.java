@@ -1,24 +1,95 @@
 package org.yipuran.wicketcustom.ajax;
 
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Page;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.core.request.handler.ListenerRequestHandler;
 import org.apache.wicket.extensions.ajax.markup.html.tabs.AjaxTabbedPanel;
 import org.apache.wicket.extensions.markup.html.tabs.ITab;
+import org.apache.wicket.extensions.markup.html.tabs.TabbedPanel;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
 import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.string.StringValue;
+import org.apache.wicket.util.visit.IVisit;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
 
 /**
  * YAjaxTabbedPanel = AjaxTabbedPanel の継承.
  * <PRE>
  * Tab クリック時にクリックする前の Tabインデックスを捕捉し onBeforeChangeTab をタブ切り替え前に実行する。
  * onBeforeChangeTab メソッドオーバーライドして使用する。
+ *
+ * setMarkupCache(true) で、表示したタブの描画結果をクライアントで保持するモードになる。
+ *  ・一度表示したタブは、サーバーへのリクエスト無しにクライアントで切り替える。
+ *    この場合 onBeforeChangeTab は実行されず、フォームも送信されない。
+ *  ・表示中タブの隣のタブ（右、無ければ左）をブラウザのアイドル時に先読みする。
+ *  ・サーバー側で内容が変わったタブは markTabDirty で破棄する。破棄したタブは次の表示でリクエストする。
+ *  ・キャッシュしないタブは isTabCacheable をオーバーライドして false を返す。
+ * クライアントで保持するタブの markupId が変わらないよう、表示したタブの Panel インスタンスは
+ * サーバー側でも保持し、ITab.getPanel の代わりに返す。保持する Panel は setMaxCachedTabs の数（既定 8）までで、超えると最も長く
+ * 表示されていないタブから破棄する。
+ * クライアントで切り替えたタブは、次の Ajax リクエストでサーバーに通知され、リクエストを処理する前に
+ * 選択タブが合わせられる。フォーム内では選択タブを hidden フィールドでも送信するので、Ajax でない
+ * submit でも同様に合わせられる。（フォーム外の Ajax でないリンクでは通知されない）
+ * フォーム内で使用する場合の注意：
+ *  サーバーで処理されるのは表示中のタブのフォームコンポーネントだけである。キャッシュから切り替えて
+ *  離れたタブで入力した値は、そのタブを再度表示するまで送信されない。全タブの入力を一度に送信する
+ *  フォームではキャッシュモードを使用しない。
+ * multipart のフォーム内ではキャッシュしない。
+ *
+ * （使用例）
+ * YAjaxTabbedPanel&lt;ITab&gt; tabbedPanel = new YAjaxTabbedPanel&lt;&gt;("tabs", tabs).setMarkupCache(true);
+ * // タブ 1 の内容を更新した時
+ * tabbedPanel.markTabDirty(target, 1);
  * </PRE>
  * @param <T> T
  */
 public class YAjaxTabbedPanel<T extends ITab> extends AjaxTabbedPanel<T>{
+	private static final ResourceReference JAVASCRIPT = new JavaScriptResourceReference(YAjaxTabbedPanel.class, "tab-cache.js");
+	/** クライアントで切り替えたタブ（markupId:タブインデックス）のパラメータ */
+	private static final String SYNC_PARAMETER = "_ytab";
+	/** 先読みするタブインデックスのパラメータ */
+	private static final String PREFETCH_PARAMETER = "_ytabi";
+	private static final MetaDataKey<TabSync> SYNC_KEY = new MetaDataKey<TabSync>(){
+	};
+
+	private boolean markupCache;
+	private int maxCachedTabs = 8;
+	/** 表示したタブの Panel インスタンス、最も長く表示されていないタブが先頭 */
+	private final Map<Integer, WebMarkupContainer> panels = new LinkedHashMap<>(16, 0.75f, true);
+	private AbstractDefaultAjaxBehavior prefetchBehavior;
+	/** true の間、タブリストは保持した Panel を返す CachedTab を返す */
+	private boolean resolving;
+	/** 先読み後に戻す Panel */
+	private WebMarkupContainer restoring;
 
 	/**
 	 * コンストラクタ.
@@ -26,7 +97,8 @@ public class YAjaxTabbedPanel<T extends ITab> extends AjaxTabbedPanel<T>{
 	 * @param tabs タブComponentリスト
 	 */
 	public YAjaxTabbedPanel(String id, List<T> tabs){
-		super(id, tabs);
+		super(id, new TabList<>(tabs));
+		((TabList<T>)getTabs()).owner = this;
 	}
 	/**
 	 * コンストラクタ.
@@ -35,21 +107,194 @@ public class YAjaxTabbedPanel<T extends ITab> extends AjaxTabbedPanel<T>{
 	 * @param model IModel
 	 */
 	public YAjaxTabbedPanel(String id, List<T> tabs, IModel<Integer> model){
-		super(id, tabs, model);
+		super(id, new TabList<>(tabs), model);
+		((TabList<T>)getTabs()).owner = this;
 	}
 	@Override
 	protected WebMarkupContainer newLink(final String linkId, final int index){
-		return new AjaxSubmitLink(linkId){
+		return new TabLink(linkId, index);
+	}
+	/**
+	 * タブ描画結果キャッシュモードの設定.
+	 * @param markupCache true = 表示したタブをクライアントで保持して、リクエスト無しで切り替える
+	 * @return YAjaxTabbedPanel
+	 */
+	public YAjaxTabbedPanel<T> setMarkupCache(boolean markupCache){
+		this.markupCache = markupCache;
+		if (markupCache && prefetchBehavior==null){
+			TabSync.register(Application.get());
+			prefetchBehavior = new AbstractDefaultAjaxBehavior(){
+				@Override
+				protected void respond(AjaxRequestTarget target){
+					prefetch(target, getRequest().getRequestParameters().getParameterValue(PREFETCH_PARAMETER).toInt(-1));
+				}
+			};
+			add(prefetchBehavior);
+		}
+		if (!markupCache){
+			panels.clear();
+		}
+		return this;
+	}
+	/**
+	 * タブ描画結果キャッシュモード.
+	 * @return true = キャッシュモード
+	 */
+	public boolean isMarkupCache(){
+		return markupCache;
+	}
+	/**
+	 * サーバー側で保持する Panel 数の上限設定.
+	 * 超えると最も長く表示されていないタブを破棄する。破棄したタブは次の表示でリクエストする。
+	 * @param maxCachedTabs 保持する Panel 数の上限、1以上
+	 * @return YAjaxTabbedPanel
+	 */
+	public YAjaxTabbedPanel<T> setMaxCachedTabs(int maxCachedTabs){
+		if (maxCachedTabs < 1) throw new IllegalArgumentException("maxCachedTabs must be greater than 0");
+		this.maxCachedTabs = maxCachedTabs;
+		evict();
+		return this;
+	}
+	/**
+	 * クライアントでキャッシュするタブの判定.
+	 * false を返すタブは表示する度にリクエストして、Panel も作り直す。
+	 * @param index タブインデックス
+	 * @return true = キャッシュする
+	 */
+	protected boolean isTabCacheable(int index){
+		return true;
+	}
+	/**
+	 * タブのキャッシュ破棄.
+	 * サーバー側の Panel インスタンスとクライアントの描画結果を破棄して、次の表示でリクエストさせる。
+	 * @param target IPartialPageRequestHandler、null の場合はサーバー側だけ破棄（ページ全体を再描画する場合）
+	 * @param index タブインデックス
+	 */
+	public void markTabDirty(IPartialPageRequestHandler target, int index){
+		panels.remove(index);
+		if (target != null && markupCache){
+			target.appendJavaScript("yipuranTabCache.dirty('" + getMarkupId() + "', " + index + ");");
+		}
+	}
+	/**
+	 * 全タブのキャッシュ破棄.
+	 * @param target IPartialPageRequestHandler、null の場合はサーバー側だけ破棄（ページ全体を再描画する場合）
+	 */
+	public void markAllTabsDirty(IPartialPageRequestHandler target){
+		panels.clear();
+		if (target != null && markupCache){
+			target.appendJavaScript("yipuranTabCache.dirty('" + getMarkupId() + "');");
+		}
+	}
+	@Override
+	public TabbedPanel<T> setSelectedTab(int index){
+		if (!markupCache){
+			return super.setSelectedTab(index);
+		}
+		// 保持した Panel は CachedTab.getPanel が返すので、TabbedPanel の現在タブも合わせて更新される
+		resolving = true;
+		try{
+			super.setSelectedTab(index);
+		}finally{
+			resolving = false;
+		}
+		WebMarkupContainer panel = (WebMarkupContainer)get(TAB_PANEL_ID);
+		panel.setOutputMarkupId(true);
+		if (getTabs().get(index).isVisible() && isTabCacheable(index)){
+			panels.put(index, panel);
+			evict();
+		}
+		return this;
+	}
+	/**
+	 * 上限を超えた Panel の破棄. Ajax リクエスト中であればクライアントの描画結果も破棄する。
+	 */
+	private void evict(){
+		Iterator<Integer> it = panels.keySet().iterator();
+		while(panels.size() > maxCachedTabs && it.hasNext()){
+			int index = it.next();
+			it.remove();
+			IPartialPageRequestHandler target = RequestCycle.get().find(IPartialPageRequestHandler.class).orElse(null);
+			markTabDirty(target, index);
+		}
+	}
+	/**
+	 * 選択タブを戻す. キャッシュしないタブでも、表示中の Panel インスタンスに戻す。
+	 */
+	private void restore(int index, WebMarkupContainer panel){
+		restoring = panel;
+		try{
+			setSelectedTab(index);
+		}finally{
+			restoring = null;
+		}
+	}
+	/**
+	 * クライアントで切り替えたタブに選択タブを合わせる.
+	 * @param index タブインデックス
+	 */
+	private void syncTab(int index){
+		if (markupCache && index >= 0 && index < getTabs().size() && index != getSelectedTab() && getTabs().get(index).isVisible()){
+			setSelectedTab(index);
+		}
+	}
+	/**
+	 * タブの先読み.
+	 * 選択タブを一時的に切り替えて描画し、描画後に元の Panel に戻す。
+	 */
+	private void prefetch(AjaxRequestTarget target, int index){
+		if (!markupCache || index < 0 || index >= getTabs().size() || index==getSelectedTab()
+			|| !getTabs().get(index).isVisible() || !isTabCacheable(index)){
+			return;
+		}
+		final int current = getSelectedTab();
+		final WebMarkupContainer currentPanel = (WebMarkupContainer)get(TAB_PANEL_ID);
+		setSelectedTab(index);
+		Component panel = get(TAB_PANEL_ID);
+		target.prependJavaScript("yipuranTabCache.holder('" + panel.getMarkupId() + "');");
+		target.add(panel);
+		target.appendJavaScript("yipuranTabCache.prefetched('" + getMarkupId() + "', " + index + ", '" + panel.getMarkupId() + "');");
+		target.addListener(new AjaxRequestTarget.IListener(){
 			@Override
-			protected void onSubmit(AjaxRequestTarget target){
-				onBeforeChangeTab(target, index);
-				setSelectedTab(index);
-				if (target != null){
-					target.add(YAjaxTabbedPanel.this);
+			public void onAfterRespond(Map<String, Component> map, AjaxRequestTarget target){
+				restore(current, currentPanel);
+			}
+		});
+	}
+	private boolean isMarkupCacheActive(){
+		if (!markupCache){
+			return false;
+		}
+		Form<?> form = findParent(Form.class);
+		return form==null || !form.getRootForm().isMultiPart();
+	}
+	@Override
+	public void renderHead(IHeaderResponse response){
+		super.renderHead(response);
+		if (!isMarkupCacheActive()){
+			return;
+		}
+		JSONObject links = new JSONObject();
+		JSONArray excluded = new JSONArray();
+		visitChildren(TabLink.class, (TabLink link, IVisit<Void> visit)->{
+			if (link.isVisibleInHierarchy()){
+				int index = link.index;
+				links.put(Integer.toString(index), link.getMarkupId());
+				if (!isTabCacheable(index)){
+					excluded.put(index);
 				}
-				onAjaxUpdate(Optional.ofNullable(target));
 			}
-		};
+		});
+		JSONObject options = new JSONObject();
+		options.put("c", get(TAB_PANEL_ID).getMarkupId());
+		options.put("s", getSelectedTab());
+		options.put("l", links);
+		options.put("k", getSelectedTabCssClass());
+		options.put("u", prefetchBehavior.getCallbackUrl().toString());
+		options.put("x", excluded);
+		options.put("f", findParent(Form.class) != null);
+		response.render(JavaScriptHeaderItem.forReference(JAVASCRIPT));
+		response.render(OnDomReadyHeaderItem.forScript("yipuranTabCache.init('" + getMarkupId() + "', " + options.toString() + ");"));
 	}
 	/**
 	 * Tabクリック前捕捉処理.
@@ -58,4 +303,138 @@ public class YAjaxTabbedPanel<T extends ITab> extends AjaxTabbedPanel<T>{
 	 */
 	protected void onBeforeChangeTab(final AjaxRequestTarget target, final int index){
 	}
+
+	/**
+	 * TabbedPanel に渡すタブリスト.
+	 * setSelectedTab の間だけ CachedTab を返し、それ以外は元のタブを返す。（getTabs の要素の型を変えないため）
+	 */
+	private static final class TabList<T extends ITab> extends AbstractList<T> implements Serializable{
+		private static final long serialVersionUID = 1L;
+		private final List<T> tabs;
+		private YAjaxTabbedPanel<T> owner;
+
+		private TabList(List<T> tabs){
+			this.tabs = tabs;
+		}
+		@SuppressWarnings("unchecked")
+		@Override
+		public T get(int index){
+			T tab = tabs.get(index);
+			if (owner != null && owner.resolving){
+				// TabbedPanel は ITab としてしか扱わない
+				return (T)owner.new CachedTab(index, tab);
+			}
+			return tab;
+		}
+		@Override
+		public int size(){
+			return tabs.size();
+		}
+	}
+	/**
+	 * 保持した Panel を getPanel で返すタブ.
+	 */
+	private final class CachedTab implements ITab{
+		private static final long serialVersionUID = 1L;
+		private final int index;
+		private final ITab tab;
+
+		private CachedTab(int index, ITab tab){
+			this.index = index;
+			this.tab = tab;
+		}
+		@Override
+		public IModel<String> getTitle(){
+			return tab.getTitle();
+		}
+		@Override
+		public boolean isVisible(){
+			return tab.isVisible();
+		}
+		@Override
+		public WebMarkupContainer getPanel(String containerId){
+			if (restoring != null){
+				return restoring;
+			}
+			WebMarkupContainer panel = panels.get(index);
+			return panel != null ? panel : tab.getPanel(containerId);
+		}
+	}
+	/**
+	 * タブリンク.
+	 */
+	private static final class TabLink extends AjaxSubmitLink{
+		private static final long serialVersionUID = 1L;
+		private final int index;
+
+		private TabLink(String id, int index){
+			super(id);
+			this.index = index;
+		}
+		private YAjaxTabbedPanel<?> tabbedPanel(){
+			return findParent(YAjaxTabbedPanel.class);
+		}
+		@Override
+		protected void updateAjaxAttributes(AjaxRequestAttributes attributes){
+			super.updateAjaxAttributes(attributes);
+			YAjaxTabbedPanel<?> tabbedPanel = tabbedPanel();
+			if (tabbedPanel.isMarkupCacheActive()){
+				// キャッシュしたタブはリクエストせずに切り替える
+				attributes.getAjaxCallListeners().add(new AjaxCallListener()
+					.onPrecondition("return yipuranTabCache.show('" + tabbedPanel.getMarkupId() + "', " + index + ");"));
+			}
+		}
+		@Override
+		protected void onSubmit(AjaxRequestTarget target){
+			YAjaxTabbedPanel<?> tabbedPanel = tabbedPanel();
+			tabbedPanel.onBeforeChangeTab(target, index);
+			tabbedPanel.setSelectedTab(index);
+			if (target != null){
+				target.add(tabbedPanel);
+			}
+			tabbedPanel.onAjaxUpdate(Optional.ofNullable(target));
+		}
+	}
+	/**
+	 * クライアントで切り替えたタブを、リクエストしたコンポーネントを解決する前にサーバー側に反映する.
+	 */
+	private static final class TabSync implements IRequestCycleListener{
+		private static void register(Application application){
+			synchronized(application){
+				if (application.getMetaData(SYNC_KEY)==null){
+					TabSync sync = new TabSync();
+					application.setMetaData(SYNC_KEY, sync);
+					application.getRequestCycleListeners().add(sync);
+				}
+			}
+		}
+		@Override
+		public void onRequestHandlerResolved(RequestCycle cycle, IRequestHandler handler){
+			if (!(handler instanceof ListenerRequestHandler)){
+				return;
+			}
+			List<StringValue> values = cycle.getRequest().getRequestParameters().getParameterValues(SYNC_PARAMETER);
+			if (values==null || values.isEmpty()){
+				return;
+			}
+			Map<String, Integer> tabs = new HashMap<>();
+			for(StringValue value : values){
+				String s = value.toString("");
+				int i = s.lastIndexOf(':');
+				if (i > 0){
+					tabs.put(s.substring(0, i), StringValue.valueOf(s.substring(i + 1)).toInt(-1));
+				}
+			}
+			IRequestablePage page = ((ListenerRequestHandler)handler).getPage();
+			if (!(page instanceof Page) || tabs.isEmpty()){
+				return;
+			}
+			((Page)page).visitChildren(YAjaxTabbedPanel.class, (component, visit)->{
+				Integer index = tabs.get(component.getMarkupId());
+				if (index != null){
+					((YAjaxTabbedPanel<?>)component).syncTab(index);
+				}
+			});
+		}
+	}
 }
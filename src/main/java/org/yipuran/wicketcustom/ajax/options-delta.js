@@ -0,0 +1,46 @@
+/** options-delta.js */
+var yipuranOptionsDelta = (function(){
+	var setText = function(option, text, html){
+		if (html){
+			option.innerHTML = text;
+		}else{
+			option.textContent = text;
+		}
+	};
+	var apply = function(id, p){
+		var select = document.getElementById(id);
+		if (!select) return;
+		// 先頭の value="" option（Choose One 等）は対象外
+		var fixed = 0;
+		while(fixed < select.options.length && select.options[fixed].value===''){
+			fixed++;
+		}
+		var byId = {};
+		for(var i=fixed; i < select.options.length; i++){
+			byId[select.options[i].value] = select.options[i];
+		}
+		(p.r || []).forEach(function(v){
+			var o = byId[v];
+			if (o){
+				select.removeChild(o);
+				delete byId[v];
+			}
+		});
+		(p.u || []).forEach(function(e){
+			var o = byId[e[0]];
+			if (o) setText(o, e[1], p.h);
+		});
+		(p.o || []).forEach(function(v){
+			var o = byId[v];
+			if (o) select.appendChild(o);
+		});
+		(p.a || []).forEach(function(e){
+			var o = document.createElement('option');
+			o.value = e[1];
+			setText(o, e[2], p.h);
+			select.insertBefore(o, select.options[fixed + e[0]] || null);
+		});
+		select.value = p.s;
+	};
+	return { apply: apply };
+})();
@@ -0,0 +1,165 @@
+/** tab-cache.js */
+var yipuranTabCache = (function(){
+	// YAjaxTabbedPanel の markupId -> 状態
+	var panels = {};
+	var idle = window.requestIdleCallback || function(fn){ return setTimeout(fn, 200); };
+	var state = function(id){
+		return panels[id] || (panels[id] = { cache:{}, dirty:{}, x:[] });
+	};
+	var cacheable = function(p, index){
+		return p.x.indexOf(index) < 0 && !p.dirty[index];
+	};
+	var drop = function(p, index){
+		if (p.cache[index]){
+			// jQuery に登録されたイベントハンドラ等も解放
+			jQuery(p.cache[index]).remove();
+			delete p.cache[index];
+		}
+	};
+	// フォーム内では選択タブを hidden フィールドでも送信する（Ajax でない submit 用）
+	var field = function(id){
+		var p = panels[id];
+		var el = document.getElementById(id);
+		if (!p || !p.f || !el) return;
+		var h = document.getElementById(id + '_ytab');
+		if (!h){
+			h = document.createElement('input');
+			h.type = 'hidden';
+			h.id = id + '_ytab';
+			h.name = '_ytab';
+			el.appendChild(h);
+		}
+		h.value = id + ':' + p.s;
+	};
+	var select = function(p, index){
+		for(var i in p.l){
+			var link = document.getElementById(p.l[i]);
+			if (link) jQuery(link.parentNode).toggleClass(p.k, parseInt(i, 10)===index);
+		}
+	};
+	// 隣のタブ（右、無ければ左）をアイドル時に先読み
+	var prefetch = function(id){
+		var p = panels[id];
+		if (!p || !p.u || p.t) return;
+		p.t = true;
+		idle(function(){
+			p.t = false;
+			if (!document.getElementById(id)) return;
+			var next = [p.s + 1, p.s - 1].filter(function(i){ return p.l[i] !== undefined; })[0];
+			if (next===undefined || p.x.indexOf(next) >= 0 || (p.cache[next] && !p.dirty[next])) return;
+			Wicket.Ajax.get({ u:p.u, ch:'yipuranTabCache|s', ep:{ '_ytabi':next } });
+		});
+	};
+	// 表示中のタブ要素がサーバー描画で置き換えられる前に、DOM から外して保持する
+	Wicket.Event.subscribe('/dom/node/removing', function(jqEvent, element){
+		for(var id in panels){
+			var p = panels[id];
+			var content = p.c ? document.getElementById(p.c) : null;
+			if (content && content!==element && element.contains(content) && cacheable(p, p.s)){
+				content.parentNode.removeChild(content);
+				drop(p, p.s);
+				p.cache[p.s] = content;
+			}
+		}
+	});
+	// クライアントだけで切り替えたタブを、次の Ajax リクエストでサーバーに通知
+	Wicket.Event.subscribe('/ajax/call/before', function(jqEvent, attrs){
+		var sync = [];
+		for(var id in panels){
+			if (panels[id].s!==panels[id].server && document.getElementById(id)){
+				sync.push({ name:'_ytab', value:id + ':' + panels[id].s });
+			}
+		}
+		if (sync.length > 0){
+			attrs.ytabSync = sync;
+			attrs.dep = (attrs.dep || []).concat(function(){ return sync; });
+		}
+	});
+	Wicket.Event.subscribe('/ajax/call/success', function(jqEvent, attrs){
+		(attrs.ytabSync || []).forEach(function(v){
+			var i = v.value.lastIndexOf(':');
+			var p = panels[v.value.substring(0, i)];
+			if (p) p.server = parseInt(v.value.substring(i + 1), 10);
+		});
+	});
+	/**
+	 * サーバー描画後の初期化.
+	 * @param id YAjaxTabbedPanel の markupId
+	 * @param o { c:表示中タブの markupId, s:選択タブ, l:{タブ:リンクの markupId}, k:選択 CSS class, u:先読み URL, x:キャッシュしないタブ, f:フォーム内 }
+	 */
+	var init = function(id, o){
+		var p = state(id);
+		p.c = o.c;
+		p.s = o.s;
+		p.server = o.s;
+		p.l = o.l;
+		p.k = o.k;
+		p.u = o.u;
+		p.x = o.x;
+		p.f = o.f;
+		drop(p, o.s);
+		delete p.dirty[o.s];
+		field(id);
+		prefetch(id);
+	};
+	/**
+	 * タブリンクの precondition.
+	 * @return キャッシュから切り替えた場合 false（リクエストしない）
+	 */
+	var show = function(id, index){
+		var p = panels[id];
+		if (!p) return true;
+		if (index===p.s) return !!p.dirty[index];
+		var cached = p.cache[index];
+		var content = p.c ? document.getElementById(p.c) : null;
+		if (!cached || p.dirty[index] || !content) return true;
+		content.parentNode.replaceChild(cached, content);
+		delete p.cache[index];
+		if (cacheable(p, p.s)){
+			p.cache[p.s] = content;
+		}else{
+			jQuery(content).remove();
+		}
+		p.c = cached.id;
+		p.s = index;
+		select(p, index);
+		field(id);
+		prefetch(id);
+		return false;
+	};
+	// 先読みしたタブの描画先
+	var holder = function(cid){
+		var div = document.createElement('div');
+		div.style.display = 'none';
+		div.id = cid + '_yholder';
+		div.appendChild(document.createElement('div')).id = cid;
+		document.body.appendChild(div);
+	};
+	var prefetched = function(id, index, cid){
+		var p = panels[id];
+		var div = document.getElementById(cid + '_yholder');
+		var el = document.getElementById(cid);
+		if (p && el && index!==p.s){
+			el.parentNode.removeChild(el);
+			drop(p, index);
+			p.cache[index] = el;
+			delete p.dirty[index];
+		}
+		if (div) jQuery(div).remove();
+	};
+	/**
+	 * タブのキャッシュ破棄.
+	 * @param index タブ、undefined は全タブ
+	 */
+	var dirty = function(id, index){
+		var p = state(id);
+		for(var i in p.l){
+			i = parseInt(i, 10);
+			if (index===undefined || index===i){
+				p.dirty[i] = true;
+				drop(p, i);
+			}
+		}
+	};
+	return { init:init, show:show, holder:holder, prefetched:prefetched, dirty:dirty };
+})();
@@ -0,0 +1,61 @@
+/** search-dropdown.js */
+var yipuranSearchChoice = (function($){
+	var init = function(id, url, delay, rows){
+		var $select = $('#' + id);
+		if ($select.length==0 || $select.data('search-choice')) return;
+		$select.data('search-choice', true);
+		var $input = $('<input type="search" autocomplete="off" class="search-dropdown-input"/>');
+		if ($select.attr('data-placeholder')) $input.attr('placeholder', $select.attr('data-placeholder'));
+		$select.before($input);
+		var timer = null, term = null, page = 0, more = false, loading = false;
+		var close = function(){
+			$select.attr('size', null);
+			term = null;
+		};
+		var fetch = function(t, p){
+			loading = true;
+			$.getJSON(url, { term: t, page: p }).done(function(data){
+				// 入力が変わった後に届いた応答は捨てる
+				if (t !== term) return;
+				var selected = $select.val();
+				if (p==0){
+					$select.find('option').filter(function(){
+						return this.value !== '' && this.value !== selected;
+					}).remove();
+				}
+				$.each(data.results, function(i, r){
+					if (r.id !== selected) $select.append($('<option/>').val(r.id).text(r.text));
+				});
+				page = p;
+				more = data.more;
+				$select.attr('size', Math.max(2, Math.min(rows, $select.find('option').length)));
+			}).always(function(){
+				loading = false;
+			});
+		};
+		var search = function(){
+			var t = $input.val();
+			if (t===term) return;
+			term = t;
+			fetch(t, 0);
+		};
+		$input.on('focus', search);
+		$input.on('input', function(){
+			clearTimeout(timer);
+			timer = setTimeout(search, delay);
+		});
+		$input.on('keydown', function(e){
+			if (e.key==='ArrowDown' || e.keyCode==40){
+				e.preventDefault();
+				$select.focus();
+			}
+		});
+		$select.on('scroll', function(){
+			if (more && !loading && this.scrollTop + this.clientHeight >= this.scrollHeight - 4){
+				fetch(term, page + 1);
+			}
+		});
+		$select.on('change blur', close);
+	};
+	return { init: init };
+})(jQuery);
@@ -0,0 +1,208 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.head.CssHeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.CssResourceReference;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.danekja.java.util.function.serializable.SerializableConsumer;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxFormSubmitBehavior;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+
+/**
+ * Base of the stateless dialogs.
+ * <p>
+ * The dialog is an empty, hidden element on the page. Showing it sends a small JSON payload
+ * (message, button labels and classes, optional data) that is rendered in the browser. A button
+ * triggers a custom event on the element, which is handled by a stateless behavior, so the page
+ * is never stored.
+ * </p>
+ */
+abstract class AbstractStatelessDialog extends WebMarkupContainer
+{
+    private static final long serialVersionUID = 1L;
+
+    /** request parameter carrying the data the dialog was shown with */
+    static final String DATA_PARAMETER = "_ydlg";
+
+    private static final ResourceReference JAVASCRIPT = new JavaScriptResourceReference(AbstractStatelessDialog.class, "stateless-dialog.js");
+
+    private static final ResourceReference CSS = new CssResourceReference(AbstractStatelessDialog.class, "stateless-dialog.css");
+
+    private static final String DATA_SCRIPT = "return {'" + DATA_PARAMETER + "': Wicket.$(attrs.c).ydlgData || ''};";
+
+    private final List<String> stylelist;
+
+    /**
+     * @param id the component id
+     * @param stylelist the classes of the buttons, may be {@code null}
+     */
+    AbstractStatelessDialog(final String id, final List<String> stylelist)
+    {
+        super(id);
+        this.stylelist = stylelist;
+        setOutputMarkupId(true);
+    }
+
+    /**
+     * @return the data the dialog was shown with, while handling a button; never {@code null}
+     */
+    public static String getData()
+    {
+        return RequestCycle.get().getRequest().getRequestParameters().getParameterValue(DATA_PARAMETER).toString("");
+    }
+
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        // the markup id has to be the same on every reconstruction of the stateless page
+        setMarkupId("ydlg_" + getPageRelativePath().replace(':', '_'));
+    }
+
+    @Override
+    protected void onComponentTag(final ComponentTag tag)
+    {
+        super.onComponentTag(tag);
+        tag.put("style", "display:none");
+    }
+
+    @Override
+    public void renderHead(final IHeaderResponse response)
+    {
+        super.renderHead(response);
+        response.render(JavaScriptHeaderItem.forReference(JAVASCRIPT));
+        response.render(CssHeaderItem.forReference(CSS));
+    }
+
+    /**
+     * Shows the dialog from an ajax response.
+     *
+     * @param target the ajax request target
+     * @param message the message, HTML is not escaped
+     */
+    public void show(final IPartialPageRequestHandler target, final String message)
+    {
+        show(target, message, null);
+    }
+
+    /**
+     * Shows the dialog from an ajax response.
+     *
+     * @param target the ajax request target
+     * @param message the message, HTML is not escaped
+     * @param data sent back with the button event, available by {@link #getData()};
+     *        it comes back from the browser and must be validated
+     */
+    public void show(final IPartialPageRequestHandler target, final String message, final String data)
+    {
+        target.appendJavaScript(getShowScript(message, data));
+    }
+
+    /**
+     * Script showing the dialog without a request, e.g. for an {@code onclick} attribute.
+     *
+     * @param message the message, HTML is not escaped
+     * @param data sent back with the button event, may be {@code null}
+     * @return the script
+     */
+    public String getShowScript(final String message, final String data)
+    {
+        final JSONObject payload = new JSONObject();
+        payload.put("m", message == null ? "" : message);
+        payload.put("c", getDialogClass());
+        payload.put("d", data == null ? "" : data);
+        payload.put("s", stylelist == null ? "" : stylelist.stream().collect(Collectors.joining(" ")));
+        payload.put("b", new JSONArray(getButtons()));
+        return "yipuranStatelessDialog.open('" + getMarkupId() + "', " + payload.toString() + ");";
+    }
+
+    /**
+     * @return the class of the dialog box
+     */
+    protected abstract String getDialogClass();
+
+    /**
+     * @return the buttons as {@code [label, event name]}, an empty event name only closes the dialog
+     */
+    protected abstract List<List<String>> getButtons();
+
+    /**
+     * Creates the behavior handling a button.
+     *
+     * @param event the custom event triggered by the button
+     * @param consumer the handler
+     * @param submitForm {@literal true} to submit the enclosing form with the event
+     * @return the behavior
+     */
+    static StatelessAjaxEventBehavior newButtonBehavior(final String event, final SerializableConsumer<AjaxRequestTarget> consumer,
+        final boolean submitForm)
+    {
+        if (submitForm)
+        {
+            return new StatelessAjaxFormSubmitBehavior(event)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void updateAjaxAttributes(final AjaxRequestAttributes attributes)
+                {
+                    super.updateAjaxAttributes(attributes);
+                    attributes.getDynamicExtraParameters().add(DATA_SCRIPT);
+                }
+
+                @Override
+                protected void onSubmit(final AjaxRequestTarget target)
+                {
+                    consumer.accept(target);
+                }
+            };
+        }
+        return new StatelessAjaxEventBehavior(event)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void updateAjaxAttributes(final AjaxRequestAttributes attributes)
+            {
+                super.updateAjaxAttributes(attributes);
+                attributes.getDynamicExtraParameters().add(DATA_SCRIPT);
+            }
+
+            @Override
+            protected void onEvent(final AjaxRequestTarget target)
+            {
+                consumer.accept(target);
+            }
+
+            @Override
+            protected PageParameters getPageParameters()
+            {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return always {@literal true}
+     */
+    @Override
+    protected boolean getStatelessHint()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,415 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Page;
+import org.apache.wicket.ajax.AjaxEventBehavior;
+import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
+import org.apache.wicket.ajax.form.AjaxFormSubmitBehavior;
+import org.apache.wicket.ajax.form.OnChangeAjaxBehavior;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.link.Link;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yipuran.wicketcustom.ClickLink;
+import org.yipuran.wicketcustom.ajax.AJAXDownload;
+import org.yipuran.wicketcustom.ajax.AjaxFileDropUpdateBehavior;
+import org.yipuran.wicketcustom.ajax.GenericAjaxEventBehavior;
+import org.yipuran.wicketcustom.ajax.YAjaxTabbedPanel;
+import org.yipuran.wicketcustom.modal.ConfirmPanel;
+import org.yipuran.wicketcustom.modal.LazyModalPanel;
+import org.yipuran.wicketcustom.modal.MessagePanel;
+import org.yipuran.wicketcustom.noframe.FullWindow;
+import org.yipuran.wicketcustom.noframe.NoFrameWindow;
+
+/**
+ * Reports what makes a page stateful.
+ * <p>
+ * {@link #audit(Page)} walks the page and reports every component and behavior that is not
+ * stateless, the serialized size it contributes (for a component its subtree, for a behavior
+ * the behavior alone) and the stateless alternative to use instead. Components of this library
+ * that are composed of stateful parts, e.g. {@link ConfirmPanel}, are reported as the enclosing
+ * component of their parts.
+ * </p>
+ * <pre>
+ * // with WicketTester
+ * tester.startPage(HomePage.class);
+ * StatelessAudit.assertStateless(tester.getLastRenderedPage());
+ *
+ * // in WebApplication#init(), logs every stateful page class once in development mode
+ * StatelessAudit.install(this);
+ * </pre>
+ */
+public final class StatelessAudit
+{
+    private static final Logger LOG = LoggerFactory.getLogger(StatelessAudit.class);
+
+    /** stateful class -> stateless alternative, the first assignable entry applies */
+    private static final Map<Class<?>, String> ALTERNATIVES = new LinkedHashMap<>();
+
+    /** composite components of this library reported as enclosing component of their stateful parts */
+    private static final List<Class<?>> COMPOSITES = new ArrayList<>();
+
+    static
+    {
+        ALTERNATIVES.put(ClickLink.class, "org.apache.wicket.markup.html.link.StatelessLink, or StatelessAjaxEventBehavior.onEvent(\"click\", ...)");
+        ALTERNATIVES.put(GenericAjaxEventBehavior.class, "StatelessAjaxEventBehavior.onEvent(event, ...)");
+        ALTERNATIVES.put(AJAXDownload.class, "StatelessAJAXDownload");
+        ALTERNATIVES.put(AjaxFileDropUpdateBehavior.class, "StatelessAjaxFileDropUpdateBehavior");
+        ALTERNATIVES.put(YAjaxTabbedPanel.class, "StatelessTabbedPanel");
+        ALTERNATIVES.put(ConfirmPanel.class, "StatelessConfirmDialog");
+        ALTERNATIVES.put(MessagePanel.class, "StatelessMessageDialog");
+        ALTERNATIVES.put(LazyModalPanel.class, null);
+        ALTERNATIVES.put(NoFrameWindow.class, null);
+        ALTERNATIVES.put(FullWindow.class, null);
+        ALTERNATIVES.put(OnChangeAjaxBehavior.class, "StatelessOnChangeAjaxBehavior");
+        ALTERNATIVES.put(AjaxFormComponentUpdatingBehavior.class, "StatelessAjaxFormComponentUpdatingBehavior");
+        ALTERNATIVES.put(AjaxFormSubmitBehavior.class, "StatelessAjaxFormSubmitBehavior");
+        ALTERNATIVES.put(AjaxEventBehavior.class, "StatelessAjaxEventBehavior");
+        ALTERNATIVES.put(Link.class, "org.apache.wicket.markup.html.link.StatelessLink");
+        ALTERNATIVES.put(Form.class, "org.apache.wicket.markup.html.form.StatelessForm");
+
+        COMPOSITES.add(YAjaxTabbedPanel.class);
+        COMPOSITES.add(ConfirmPanel.class);
+        COMPOSITES.add(MessagePanel.class);
+        COMPOSITES.add(LazyModalPanel.class);
+        COMPOSITES.add(NoFrameWindow.class);
+        COMPOSITES.add(FullWindow.class);
+    }
+
+    private StatelessAudit()
+    {
+    }
+
+    /**
+     * Audits a page.
+     *
+     * @param page the page, usually {@code WicketTester#getLastRenderedPage()}
+     * @return the report
+     */
+    public static Report audit(final Page page)
+    {
+        final List<Finding> findings = new ArrayList<>();
+        inspect(page, findings);
+        page.visitChildren((component, visit) -> inspect(component, findings));
+        return new Report(page.getClass().getName(), sizeOf(page, page), findings);
+    }
+
+    /**
+     * Audits a page and fails if it is not stateless.
+     *
+     * @param page the page
+     * @throws AssertionError with the report if something is not stateless
+     */
+    public static void assertStateless(final Page page)
+    {
+        final Report report = audit(page);
+        if (!report.isStateless())
+        {
+            throw new AssertionError(report.toString());
+        }
+    }
+
+    /**
+     * In development mode logs the report of every page class rendered stateful, once per class.
+     * Does nothing in deployment mode.
+     *
+     * @param application the application
+     */
+    public static void install(final Application application)
+    {
+        if (!application.usesDevelopmentConfig())
+        {
+            return;
+        }
+        final Set<String> reported = ConcurrentHashMap.newKeySet();
+        application.getComponentOnAfterRenderListeners().add(component -> {
+            if (component instanceof Page && !((Page)component).isPageStateless()
+                && reported.add(component.getClass().getName()))
+            {
+                LOG.warn(audit((Page)component).toString());
+            }
+        });
+    }
+
+    private static void inspect(final Component component, final List<Finding> findings)
+    {
+        if (component.isStateless())
+        {
+            return;
+        }
+        final Component enclosing = enclosing(component);
+        final List<Finding> behaviors = new ArrayList<>();
+        for (Behavior behavior : component.getBehaviors())
+        {
+            if (!behavior.getStatelessHint(component))
+            {
+                behaviors.add(new Finding(component.getPageRelativePath(), behavior.getClass(),
+                    sizeOf(behavior, null), enclosing, true));
+            }
+        }
+        if (behaviors.isEmpty())
+        {
+            // the component's own stateless hint is false
+            findings.add(new Finding(component.getPageRelativePath(), component.getClass(),
+                sizeOf(component, component), enclosing, false));
+        }
+        else
+        {
+            findings.addAll(behaviors);
+        }
+    }
+
+    /**
+     * @return the nearest composite of this library containing the component, or {@code null}
+     */
+    private static Component enclosing(final Component component)
+    {
+        for (Component c = component; c != null; c = c.getParent())
+        {
+            for (Class<?> composite : COMPOSITES)
+            {
+                if (composite.isInstance(c))
+                {
+                    return c;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String alternative(final Class<?> type)
+    {
+        for (Map.Entry<Class<?>, String> e : ALTERNATIVES.entrySet())
+        {
+            if (e.getKey().isAssignableFrom(type))
+            {
+                return e.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Serialized size of an object. Components outside of {@code root} are written as {@code null},
+     * so a component is measured with its subtree and without its parents, and a behavior
+     * ({@code root} is {@code null}) without any component.
+     *
+     * @return the size in bytes, -1 if the object cannot be serialized
+     */
+    private static long sizeOf(final Object object, final Component root)
+    {
+        final CountingOutputStream count = new CountingOutputStream();
+        try (ObjectOutputStream out = new SubtreeOutputStream(count, root))
+        {
+            out.writeObject(object);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            return -1;
+        }
+        return count.count;
+    }
+
+    /**
+     * One component or behavior that is not stateless.
+     */
+    public static final class Finding
+    {
+        private final String path;
+        private final String className;
+        private final long size;
+        private final String enclosing;
+        private final String alternative;
+        private final boolean behavior;
+
+        private Finding(final String path, final Class<?> type, final long size, final Component enclosing,
+            final boolean behavior)
+        {
+            this.path = path;
+            className = type.getName();
+            this.size = size;
+            this.enclosing = enclosing == null ? null : enclosing.getClass().getName() + " " + enclosing.getPageRelativePath();
+            // the parts of a composite cannot be replaced on their own
+            alternative = alternative(enclosing == null ? type : enclosing.getClass());
+            this.behavior = behavior;
+        }
+
+        /**
+         * @return the page relative path of the component
+         */
+        public String getPath()
+        {
+            return path;
+        }
+
+        /**
+         * @return the class of the component or behavior
+         */
+        public String getClassName()
+        {
+            return className;
+        }
+
+        /**
+         * @return {@literal true} for a behavior, {@literal false} for a component
+         */
+        public boolean isBehavior()
+        {
+            return behavior;
+        }
+
+        /**
+         * @return the serialized size in bytes, -1 if not serializable
+         */
+        public long getSerializedSize()
+        {
+            return size;
+        }
+
+        /**
+         * @return the composite of this library containing the component, or {@code null}
+         */
+        public String getEnclosing()
+        {
+            return enclosing;
+        }
+
+        /**
+         * @return the stateless alternative, or {@code null} if there is none
+         */
+        public String getAlternative()
+        {
+            return alternative;
+        }
+
+        @Override
+        public String toString()
+        {
+            return (behavior ? "behavior " : "component ") + className + " at '" + path + "', " + size + " bytes"
+                + (enclosing == null ? "" : ", in " + enclosing)
+                + ", alternative: " + (alternative == null ? "none" : alternative);
+        }
+    }
+
+    /**
+     * The result of an audit.
+     */
+    public static final class Report
+    {
+        private final String pageClass;
+        private final long pageSize;
+        private final List<Finding> findings;
+
+        private Report(final String pageClass, final long pageSize, final List<Finding> findings)
+        {
+            this.pageClass = pageClass;
+            this.pageSize = pageSize;
+            this.findings = Collections.unmodifiableList(findings);
+        }
+
+        public String getPageClass()
+        {
+            return pageClass;
+        }
+
+        /**
+         * @return the serialized size of the whole page in bytes, -1 if not serializable
+         */
+        public long getPageSize()
+        {
+            return pageSize;
+        }
+
+        public List<Finding> getFindings()
+        {
+            return findings;
+        }
+
+        public boolean isStateless()
+        {
+            return findings.isEmpty();
+        }
+
+        @Override
+        public String toString()
+        {
+            final StringBuilder sb = new StringBuilder(pageClass);
+            if (findings.isEmpty())
+            {
+                return sb.append(" is stateless").toString();
+            }
+            sb.append(" is stateful, ").append(pageSize).append(" bytes serialized");
+            for (Finding finding : findings)
+            {
+                sb.append("\n  ").append(finding);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream
+    {
+        private long count;
+
+        @Override
+        public void write(final int b)
+        {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+        {
+            count += len;
+        }
+    }
+
+    private static final class SubtreeOutputStream extends ObjectOutputStream
+    {
+        private final Component root;
+
+        private SubtreeOutputStream(final OutputStream out, final Component root) throws IOException
+        {
+            super(out);
+            this.root = root;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(final Object obj) throws IOException
+        {
+            if (obj instanceof Component && !isInSubtree((Component)obj))
+            {
+                return null;
+            }
+            return obj;
+        }
+
+        private boolean isInSubtree(final Component component)
+        {
+            if (root == null)
+            {
+                return false;
+            }
+            if (component == root)
+            {
+                return true;
+            }
+            return root instanceof MarkupContainer && ((MarkupContainer)root).contains(component, true);
+        }
+    }
+}
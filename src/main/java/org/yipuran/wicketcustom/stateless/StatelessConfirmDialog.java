@@ -0,0 +1,100 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.yipuran.wicketcustom.function.SerialThrowableConsumer;
+
+/**
+ * Stateless version of ConfirmPanel.
+ * <p>
+ * The dialog is rendered in the browser from a small JSON payload, no ModalWindow and no
+ * stateful button is involved. The left and right buttons are handled by stateless behaviors
+ * on the dialog element, so showing a confirmation does not store the page.
+ * With {@code submitForm} the left button submits the enclosing form
+ * (see {@link org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxFormSubmitBehavior}).
+ * Data given to {@link #show(org.apache.wicket.core.request.handler.IPartialPageRequestHandler, String, String)}
+ * is sent back with the button and is available by {@link #getData()}.
+ * </p>
+ * <pre>
+ * &lt;div wicket:id="confirm"&gt;&lt;/div&gt;
+ *
+ * StatelessConfirmDialog confirm = new StatelessConfirmDialog("confirm", "Yes", "No",
+ *    t-&gt;{
+ *        itemService.delete(Long.parseLong(StatelessConfirmDialog.getData()));
+ *        t.add(list);
+ *    },
+ *    t-&gt;{
+ *    });
+ * queue(confirm);
+ *
+ * // in a stateless callback
+ * confirm.show(target, "削除してよろしいですか？", Long.toString(item.getId()));
+ * </pre>
+ */
+public class StatelessConfirmDialog extends AbstractStatelessDialog
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final String LEFT_EVENT = "yconfirmleft";
+
+    private static final String RIGHT_EVENT = "yconfirmright";
+
+    private final String left;
+
+    private final String right;
+
+    private final boolean hasRight;
+
+    /**
+     * @param id the component id
+     * @param left the label of the left button
+     * @param right the label of the right button
+     * @param leftConsumer executed by the left button
+     * @param rightConsumer executed by the right button, {@code null} to only close the dialog
+     */
+    public StatelessConfirmDialog(final String id, final String left, final String right,
+        final SerialThrowableConsumer<AjaxRequestTarget> leftConsumer,
+        final SerialThrowableConsumer<AjaxRequestTarget> rightConsumer)
+    {
+        this(id, left, right, null, false, leftConsumer, rightConsumer);
+    }
+
+    /**
+     * @param id the component id
+     * @param left the label of the left button
+     * @param right the label of the right button
+     * @param stylelist the classes of the buttons, may be {@code null}
+     * @param submitForm {@literal true} if the left button submits the enclosing form
+     * @param leftConsumer executed by the left button, on submit if {@code submitForm}
+     * @param rightConsumer executed by the right button, {@code null} to only close the dialog
+     */
+    public StatelessConfirmDialog(final String id, final String left, final String right,
+        final List<String> stylelist, final boolean submitForm,
+        final SerialThrowableConsumer<AjaxRequestTarget> leftConsumer,
+        final SerialThrowableConsumer<AjaxRequestTarget> rightConsumer)
+    {
+        super(id, stylelist);
+        this.left = left;
+        this.right = right;
+        add(newButtonBehavior(LEFT_EVENT, leftConsumer, submitForm));
+        if (rightConsumer != null)
+        {
+            add(newButtonBehavior(RIGHT_EVENT, rightConsumer, false));
+        }
+        hasRight = rightConsumer != null;
+    }
+
+    @Override
+    protected String getDialogClass()
+    {
+        return "ydlg-confirm";
+    }
+
+    @Override
+    protected List<List<String>> getButtons()
+    {
+        return Arrays.asList(Arrays.asList(left, LEFT_EVENT), Arrays.asList(right, hasRight ? RIGHT_EVENT : ""));
+    }
+}
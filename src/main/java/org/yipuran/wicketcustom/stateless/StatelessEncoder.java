@@ -18,9 +18,9 @@
 package org.yipuran.wicketcustom.stateless;
 
 import java.nio.charset.Charset;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.mapper.parameter.INamedParameters;
@@ -38,6 +38,11 @@ public class StatelessEncoder
      * Merges the query parameters of the url with the named parameters
      * from the {@link PageParameters}. The page parameters override the query
      * parameters.
+     * <p>
+     * The url is copied structurally (segments and query parameters) instead of
+     * being rendered and parsed again, and the url itself is returned when there
+     * are no page parameters to merge.
+     * </p>
      *
      * @param url the url with the original parameters
      * @param params the page parameters to merge
@@ -45,18 +50,14 @@ public class StatelessEncoder
      */
     public static Url mergeParameters(final Url url, final PageParameters params)
     {
-        if (params == null)
+        if (params == null || params.isEmpty())
         {
             return url;
         }
 
         Charset charset = url.getCharset();
 
-        Url mergedUrl = Url.parse(url.toString(), charset);
-
-        UrlEncoder urlEncoder = UrlEncoder.QUERY_INSTANCE;
-
-        Set<String> setParameters = new HashSet<String>();
+        Url mergedUrl = new Url(url);
 
         int indexedCount = params.getIndexedCount();
         if (indexedCount > 0)
@@ -83,22 +84,54 @@ public class StatelessEncoder
             }
         }
 
-        for (INamedParameters.NamedPair pair : params.getAllNamed())
+        List<INamedParameters.NamedPair> named = params.getAllNamed();
+        if (named.isEmpty())
+        {
+            return mergedUrl;
+        }
+
+        // raw key -> encoded key, also tells whether the key has already been set
+        Map<String, String> encodedKeys = new HashMap<String, String>(named.size() * 2);
+
+        for (INamedParameters.NamedPair pair : named)
         {
-            String key = urlEncoder.encode(pair.getKey(), charset);
-            String value = urlEncoder.encode(pair.getValue(), charset);
+            String key = encodedKeys.get(pair.getKey());
+            String value = encode(pair.getValue(), charset);
 
-            if (setParameters.contains(key)) {
+            if (key != null) {
                 mergedUrl.addQueryParameter(key, value);
             } else {
+                key = encode(pair.getKey(), charset);
                 mergedUrl.setQueryParameter(key, value);
-                setParameters.add(key);
+                encodedKeys.put(pair.getKey(), key);
             }
         }
 
         return mergedUrl;
     }
 
+    /**
+     * Encodes a query key or value, skipping the encoder when the string
+     * only contains characters that are never encoded.
+     *
+     * @param s the string to encode
+     * @param charset the charset of the url
+     * @return the encoded string
+     */
+    private static String encode(final String s, final Charset charset)
+    {
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_'))
+            {
+                return UrlEncoder.QUERY_INSTANCE.encode(s, charset);
+            }
+        }
+        return s;
+    }
+
     private StatelessEncoder()
     {// forbid instantiation
     }
@@ -0,0 +1,77 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.danekja.java.util.function.serializable.SerializableConsumer;
+
+/**
+ * Stateless version of MessagePanel.
+ * <p>
+ * The message is rendered in the browser from a small JSON payload. The close button only
+ * closes the dialog in the browser, unless a consumer is given: it is then executed by a
+ * stateless behavior on the dialog element.
+ * </p>
+ * <pre>
+ * &lt;div wicket:id="message"&gt;&lt;/div&gt;
+ *
+ * StatelessMessageDialog message = new StatelessMessageDialog("message", "OK", null);
+ * queue(message);
+ *
+ * // in a stateless callback
+ * message.show(target, "登録しました");
+ * </pre>
+ */
+public class StatelessMessageDialog extends AbstractStatelessDialog
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final String CLOSE_EVENT = "ymessageclose";
+
+    private final String closeLabel;
+
+    private final boolean hasConsumer;
+
+    /**
+     * @param id the component id
+     * @param closeLabel the label of the close button
+     * @param consumer executed by the close button, {@code null} to only close the dialog
+     */
+    public StatelessMessageDialog(final String id, final String closeLabel,
+        final SerializableConsumer<AjaxRequestTarget> consumer)
+    {
+        this(id, closeLabel, null, consumer);
+    }
+
+    /**
+     * @param id the component id
+     * @param closeLabel the label of the close button
+     * @param stylelist the classes of the close button, may be {@code null}
+     * @param consumer executed by the close button, {@code null} to only close the dialog
+     */
+    public StatelessMessageDialog(final String id, final String closeLabel, final List<String> stylelist,
+        final SerializableConsumer<AjaxRequestTarget> consumer)
+    {
+        super(id, stylelist);
+        this.closeLabel = closeLabel;
+        if (consumer != null)
+        {
+            add(newButtonBehavior(CLOSE_EVENT, consumer, false));
+        }
+        hasConsumer = consumer != null;
+    }
+
+    @Override
+    protected String getDialogClass()
+    {
+        return "ydlg-message";
+    }
+
+    @Override
+    protected List<List<String>> getButtons()
+    {
+        return Collections.singletonList(Arrays.asList(closeLabel, hasConsumer ? CLOSE_EVENT : ""));
+    }
+}
@@ -0,0 +1,332 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Session;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.core.request.handler.ListenerRequestHandler;
+import org.apache.wicket.request.IRequestCycle;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestParameters;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.Url.QueryParameter;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.flow.ResetResponseException;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.string.StringValue;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+
+/**
+ * Caches the ajax responses of cacheable stateless behaviors.
+ * <p>
+ * A {@link StatelessAjaxEventBehavior} made cacheable with
+ * {@code setCacheable(Duration)} sends its callback as GET request with the page parameters
+ * in the url (see {@link StatelessEncoder}). The first response for a callback url is kept
+ * on the server for the behavior's max age. Further requests for the same url are answered
+ * from the cache as soon as the request handler is resolved, i.e. without instantiating the
+ * page again.
+ * </p>
+ * <p>
+ * The cache is a server side cache only: Wicket's ajax requests are sent with jQuery's
+ * {@code cache: false}, so the browser never revalidates or reuses an ajax response and
+ * no HTTP caching headers are written.
+ * </p>
+ * <p>
+ * The cache key is the callback url with its query parameters sorted and jQuery's anti-cache
+ * parameter {@code _} removed, together with the ajax base url and the session locale.
+ * Only behaviors whose response depends on nothing else than the url may be made cacheable.
+ * </p>
+ * <pre>
+ * // in WebApplication#init()
+ * StatelessResponseCache.install(this);
+ * </pre>
+ */
+public class StatelessResponseCache implements IRequestCycleListener
+{
+    private static final MetaDataKey<StatelessResponseCache> KEY = new MetaDataKey<StatelessResponseCache>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final MetaDataKey<String> CACHE_KEY = new MetaDataKey<String>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final MetaDataKey<Capture> CAPTURE = new MetaDataKey<Capture>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    /** jQuery's anti-cache parameter of ajax GET requests */
+    private static final String ANTI_CACHE_PARAMETER = "_";
+
+    /** canonical callback url -> cached response, least recently used first */
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param maxEntries the number of responses to keep
+     */
+    protected StatelessResponseCache(final int maxEntries)
+    {
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Installs a cache keeping up to 1000 responses.
+     *
+     * @param application the application
+     * @return the installed cache
+     */
+    public static StatelessResponseCache install(final Application application)
+    {
+        return install(application, 1000);
+    }
+
+    /**
+     * Installs a cache as request cycle listener of the application.
+     *
+     * @param application the application
+     * @param maxEntries the number of responses to keep
+     * @return the installed cache
+     */
+    public static StatelessResponseCache install(final Application application, final int maxEntries)
+    {
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("maxEntries must be greater than 0");
+        }
+        StatelessResponseCache cache = new StatelessResponseCache(maxEntries);
+        application.setMetaData(KEY, cache);
+        application.getRequestCycleListeners().add(cache);
+        return cache;
+    }
+
+    /**
+     * @return the cache of the current application or {@code null} if not installed
+     */
+    public static StatelessResponseCache get()
+    {
+        return Application.get().getMetaData(KEY);
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public void clear()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        if (!(handler instanceof ListenerRequestHandler) || !isAjaxWithoutBody(cycle))
+        {
+            return;
+        }
+        final String key = key(cycle);
+        final Entry entry;
+        synchronized (entries)
+        {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired())
+            {
+                entries.remove(key);
+            }
+        }
+        if (entry != null && !entry.isExpired())
+        {
+            throw new ResetResponseException(new CachedResponseHandler(entry))
+            {
+                private static final long serialVersionUID = 1L;
+            };
+        }
+        cycle.setMetaData(CACHE_KEY, key);
+    }
+
+    @Override
+    public void onRequestHandlerExecuted(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        if (handler instanceof ListenerRequestHandler)
+        {
+            final String key = cycle.getMetaData(CACHE_KEY);
+            final Duration maxAge = key == null ? null : maxAge((ListenerRequestHandler)handler);
+            // the ajax response is rendered by the handler scheduled next, buffer it to read the body
+            if (maxAge != null && StatelessResponseCapture.open(cycle))
+            {
+                cycle.setMetaData(CAPTURE, new Capture(key, maxAge));
+            }
+            return;
+        }
+        final Capture capture = cycle.getMetaData(CAPTURE);
+        if (capture != null && handler instanceof IPartialPageRequestHandler)
+        {
+            cycle.setMetaData(CAPTURE, null);
+            final String text = StatelessResponseCapture.text(cycle);
+            if (text != null)
+            {
+                final Entry entry = new Entry(text, contentType(), capture.maxAge);
+                synchronized (entries)
+                {
+                    entries.put(capture.key, entry);
+                }
+            }
+            StatelessResponseCapture.close(cycle);
+        }
+    }
+
+    @Override
+    public IRequestHandler onException(final RequestCycle cycle, final Exception ex)
+    {
+        final Capture capture = cycle.getMetaData(CAPTURE);
+        if (capture != null)
+        {
+            cycle.setMetaData(CAPTURE, null);
+            StatelessResponseCapture.abort(cycle);
+        }
+        return null;
+    }
+
+    private static boolean isAjaxWithoutBody(final RequestCycle cycle)
+    {
+        if (!(cycle.getRequest() instanceof WebRequest) || !((WebRequest)cycle.getRequest()).isAjax())
+        {
+            return false;
+        }
+        // everything the server sees of a request without post parameters is in the cache key
+        return cycle.getRequest().getPostParameters().getParameterNames().isEmpty();
+    }
+
+    /**
+     * @return the max age of the listener's behavior, {@code null} if it is not cacheable
+     */
+    private static Duration maxAge(final ListenerRequestHandler handler)
+    {
+        if (handler.getBehaviorIndex() == null)
+        {
+            return null;
+        }
+        final Component component = (Component)handler.getComponent();
+        final Behavior behavior = component.getBehaviorById(handler.getBehaviorIndex());
+        return behavior instanceof StatelessAjaxEventBehavior
+            ? ((StatelessAjaxEventBehavior)behavior).getCacheMaxAge() : null;
+    }
+
+    /**
+     * Canonical key of a callback request: the url with sorted query parameters and without
+     * the anti-cache parameter, the post parameters sorted by name, the ajax base url and the locale.
+     *
+     * @param cycle the request cycle
+     * @return the key
+     */
+    static String key(final RequestCycle cycle)
+    {
+        final Url url = new Url(cycle.getRequest().getUrl());
+        final List<QueryParameter> parameters = new ArrayList<>(url.getQueryParameters());
+        parameters.removeIf(p -> ANTI_CACHE_PARAMETER.equals(p.getName()));
+        parameters.sort(Comparator.comparing(QueryParameter::getName));
+        url.getQueryParameters().clear();
+        url.getQueryParameters().addAll(parameters);
+        final StringBuilder key = new StringBuilder()
+            .append(((WebRequest)cycle.getRequest()).getHeader(WebRequest.HEADER_AJAX_BASE_URL))
+            .append('|').append(Session.get().getLocale())
+            .append('|').append(url.toString());
+        final IRequestParameters post = cycle.getRequest().getPostParameters();
+        new TreeSet<>(post.getParameterNames()).forEach(name -> {
+            for (StringValue value : post.getParameterValues(name))
+            {
+                key.append('|').append(name).append('=').append(value);
+            }
+        });
+        return key.toString();
+    }
+
+    private static String contentType()
+    {
+        return "text/xml; charset=" + Application.get().getRequestCycleSettings().getResponseRequestEncoding();
+    }
+
+    /**
+     * A cached ajax response.
+     */
+    private static class Entry
+    {
+        private final String body;
+        private final String contentType;
+        private final Instant expires;
+
+        private Entry(final String body, final String contentType, final Duration maxAge)
+        {
+            this.body = body;
+            this.contentType = contentType;
+            expires = Instant.now().plus(maxAge);
+        }
+
+        private boolean isExpired()
+        {
+            return !Instant.now().isBefore(expires);
+        }
+    }
+
+    /**
+     * The ajax response being rendered for a cacheable behavior.
+     */
+    private static class Capture
+    {
+        private final String key;
+        private final Duration maxAge;
+
+        private Capture(final String key, final Duration maxAge)
+        {
+            this.key = key;
+            this.maxAge = maxAge;
+        }
+    }
+
+    /**
+     * Answers a request from the cache.
+     */
+    private static class CachedResponseHandler implements IRequestHandler
+    {
+        private final Entry entry;
+
+        private CachedResponseHandler(final Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        @Override
+        public void respond(final IRequestCycle requestCycle)
+        {
+            final WebResponse response = (WebResponse)requestCycle.getResponse();
+            response.setContentType(entry.contentType);
+            response.write(entry.body);
+        }
+    }
+}
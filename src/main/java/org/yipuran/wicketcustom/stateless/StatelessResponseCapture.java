@@ -0,0 +1,105 @@
+package org.yipuran.wicketcustom.stateless;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebResponse;
+
+/**
+ * Buffers the ajax response of a request cycle for the listeners reading its body.
+ * <p>
+ * {@link StatelessResponseCache} and {@link StatelessSingleFlight} both need the body of the
+ * ajax response rendered after a listener request handler. They share one buffer per request
+ * cycle, so that the order in which the listeners are notified does not matter: every listener
+ * {@link #open(RequestCycle) opens} the capture and {@link #close(RequestCycle) closes} it after
+ * reading the body, the buffer is written to the original response when the last one closes.
+ * </p>
+ */
+final class StatelessResponseCapture
+{
+    private static final MetaDataKey<StatelessResponseCapture> KEY = new MetaDataKey<StatelessResponseCapture>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private final WebResponse original;
+
+    private final BufferedWebResponse buffer;
+
+    private int readers;
+
+    private StatelessResponseCapture(final WebResponse original)
+    {
+        this.original = original;
+        buffer = new BufferedWebResponse(original);
+    }
+
+    /**
+     * Starts buffering the response of the cycle or joins the capture already started.
+     *
+     * @param cycle the request cycle
+     * @return {@literal false} if the response cannot be buffered
+     */
+    static boolean open(final RequestCycle cycle)
+    {
+        StatelessResponseCapture capture = cycle.getMetaData(KEY);
+        if (capture == null)
+        {
+            if (!(cycle.getResponse() instanceof WebResponse))
+            {
+                return false;
+            }
+            capture = new StatelessResponseCapture((WebResponse)cycle.getResponse());
+            cycle.setMetaData(KEY, capture);
+            cycle.setResponse(capture.buffer);
+        }
+        capture.readers++;
+        return true;
+    }
+
+    /**
+     * @param cycle the request cycle
+     * @return the buffered ajax response, {@code null} if there is none or it is a redirect
+     */
+    static String text(final RequestCycle cycle)
+    {
+        final StatelessResponseCapture capture = cycle.getMetaData(KEY);
+        if (capture == null || capture.buffer.isRedirect())
+        {
+            return null;
+        }
+        final CharSequence text = capture.buffer.getText();
+        return text == null ? null : text.toString();
+    }
+
+    /**
+     * Leaves the capture; the last reader restores the original response and writes the buffer to it.
+     *
+     * @param cycle the request cycle
+     */
+    static void close(final RequestCycle cycle)
+    {
+        final StatelessResponseCapture capture = cycle.getMetaData(KEY);
+        if (capture != null && --capture.readers <= 0)
+        {
+            cycle.setMetaData(KEY, null);
+            cycle.setResponse(capture.original);
+            capture.buffer.writeTo(capture.original);
+        }
+    }
+
+    /**
+     * Restores the original response without writing the buffer, e.g. when the request failed.
+     *
+     * @param cycle the request cycle
+     */
+    static void abort(final RequestCycle cycle)
+    {
+        final StatelessResponseCapture capture = cycle.getMetaData(KEY);
+        if (capture != null)
+        {
+            cycle.setMetaData(KEY, null);
+            cycle.setResponse(capture.original);
+        }
+    }
+}
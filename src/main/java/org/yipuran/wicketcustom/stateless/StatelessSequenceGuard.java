@@ -0,0 +1,175 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.flow.ResetResponseException;
+import org.apache.wicket.request.handler.TextRequestHandler;
+import org.apache.wicket.util.string.StringValue;
+
+/**
+ * Drops stale stateless ajax requests before the page is reconstructed.
+ * <p>
+ * Behaviors with "drop stale" enabled (see
+ * {@code StatelessOnChangeAjaxBehavior#setDropStale(boolean)}) send the parameter
+ * {@value #PARAMETER} as {@code <client token>-<sequence number>}, where the token
+ * is generated once per element in the browser. When a request arrives whose
+ * sequence number is not greater than the last one accepted for the same token,
+ * it is answered with an empty ajax response as soon as its request handler is
+ * resolved, i.e. before the stateless page is instantiated again.
+ * </p>
+ * <p>
+ * The sequence number is checked once per request cycle: the handlers scheduled
+ * while the accepted request is processed (e.g. the ajax request target) carry the
+ * same parameter and must not be rejected again.
+ * </p>
+ * <pre>
+ * // in WebApplication#init()
+ * StatelessSequenceGuard.install(this);
+ * </pre>
+ */
+public class StatelessSequenceGuard implements IRequestCycleListener
+{
+    /** request parameter carrying the client token and sequence number */
+    public static final String PARAMETER = "_ysq";
+
+    private static final MetaDataKey<StatelessSequenceGuard> KEY = new MetaDataKey<StatelessSequenceGuard>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    /** marks a request cycle whose sequence number has already been checked */
+    private static final MetaDataKey<Boolean> CHECKED = new MetaDataKey<Boolean>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final String EMPTY_AJAX_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><ajax-response></ajax-response>";
+
+    /** client token -> last accepted sequence number, least recently used first */
+    private final Map<String, Long> latest;
+
+    /**
+     * @param maxClients the number of client tokens to remember
+     */
+    protected StatelessSequenceGuard(final int maxClients)
+    {
+        latest = new LinkedHashMap<String, Long>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest)
+            {
+                return size() > maxClients;
+            }
+        };
+    }
+
+    /**
+     * Installs a guard remembering up to 10000 client tokens.
+     *
+     * @param application the application
+     * @return the installed guard
+     */
+    public static StatelessSequenceGuard install(final Application application)
+    {
+        return install(application, 10000);
+    }
+
+    /**
+     * Installs a guard as request cycle listener of the application.
+     *
+     * @param application the application
+     * @param maxClients the number of client tokens to remember
+     * @return the installed guard
+     */
+    public static StatelessSequenceGuard install(final Application application, final int maxClients)
+    {
+        StatelessSequenceGuard guard = new StatelessSequenceGuard(maxClients);
+        application.setMetaData(KEY, guard);
+        application.getRequestCycleListeners().add(guard);
+        return guard;
+    }
+
+    /**
+     * @return the guard of the current application or {@code null} if not installed
+     */
+    public static StatelessSequenceGuard get()
+    {
+        return Application.get().getMetaData(KEY);
+    }
+
+    @Override
+    public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        if (handler instanceof TextRequestHandler || Boolean.TRUE.equals(cycle.getMetaData(CHECKED)))
+        {
+            return;
+        }
+        StringValue value = cycle.getRequest().getRequestParameters().getParameterValue(PARAMETER);
+        if (value.isEmpty())
+        {
+            return;
+        }
+        cycle.setMetaData(CHECKED, Boolean.TRUE);
+        String s = value.toString();
+        int index = s.lastIndexOf('-');
+        if (index <= 0)
+        {
+            return;
+        }
+        long sequence;
+        try
+        {
+            sequence = Long.parseLong(s.substring(index + 1));
+        }
+        catch (NumberFormatException e)
+        {
+            return;
+        }
+        if (!accept(s.substring(0, index), sequence))
+        {
+            throw new StaleRequestException();
+        }
+    }
+
+    /**
+     * Records the sequence number if it is newer than the last accepted one.
+     *
+     * @param token the client token
+     * @param sequence the sequence number
+     * @return {@code false} if the request is stale
+     */
+    public boolean accept(final String token, final long sequence)
+    {
+        synchronized (latest)
+        {
+            Long last = latest.get(token);
+            if (last != null && sequence <= last)
+            {
+                return false;
+            }
+            latest.put(token, sequence);
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the resolved handler with an empty ajax response.
+     */
+    private static class StaleRequestException extends ResetResponseException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private StaleRequestException()
+        {
+            super(new TextRequestHandler("text/xml", "UTF-8", EMPTY_AJAX_RESPONSE));
+        }
+    }
+}
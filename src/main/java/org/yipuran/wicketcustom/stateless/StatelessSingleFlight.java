@@ -0,0 +1,301 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.core.request.handler.ListenerRequestHandler;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.flow.ResetResponseException;
+import org.apache.wicket.request.handler.TextRequestHandler;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+
+/**
+ * Coalesces identical concurrent stateless ajax callbacks.
+ * <p>
+ * A {@link StatelessAjaxEventBehavior} with {@code setSingleFlight(true)} marks its callbacks
+ * with the parameter {@value #PARAMETER}. The first marked request for a callback key, i.e. the
+ * behavior's callback url with the parameters merged by {@link StatelessEncoder}, is processed
+ * as usual. Identical requests arriving while it is in flight do not instantiate the page:
+ * they wait for it and are answered with its ajax response. Once the response is written the
+ * flight ends, the next request starts a new one.
+ * </p>
+ * <p>
+ * Waiting is bounded: a request waits at most {@code maxWait} and a flight takes at most
+ * {@code maxFollowers} waiting requests. A request that times out, exceeds the limit, or whose
+ * flight failed is processed on its own. Followers only get the response of a flight whose
+ * behavior really is single-flight, so the marker parameter cannot be used to read responses of
+ * other behaviors. The response is shared between users, so only behaviors whose response does
+ * not depend on the session may be made single-flight.
+ * </p>
+ * <pre>
+ * // in WebApplication#init()
+ * StatelessSingleFlight.install(this);
+ * </pre>
+ */
+public class StatelessSingleFlight implements IRequestCycleListener
+{
+    /** request parameter marking single-flight callbacks */
+    public static final String PARAMETER = "_ysf";
+
+    private static final MetaDataKey<StatelessSingleFlight> KEY = new MetaDataKey<StatelessSingleFlight>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final MetaDataKey<Flight> FLIGHT = new MetaDataKey<Flight>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private final long maxWaitNanos;
+
+    private final int maxFollowers;
+
+    /** callback key -> flight in progress */
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    /**
+     * @param maxWait the maximal time a request waits for the flight
+     * @param maxFollowers the maximal number of requests waiting for one flight
+     */
+    protected StatelessSingleFlight(final Duration maxWait, final int maxFollowers)
+    {
+        maxWaitNanos = maxWait.toNanos();
+        this.maxFollowers = maxFollowers;
+    }
+
+    /**
+     * Installs a single-flight listener waiting at most 10 seconds with up to 1000 waiting requests per flight.
+     *
+     * @param application the application
+     * @return the installed listener
+     */
+    public static StatelessSingleFlight install(final Application application)
+    {
+        return install(application, Duration.ofSeconds(10), 1000);
+    }
+
+    /**
+     * Installs a single-flight listener as request cycle listener of the application.
+     *
+     * @param application the application
+     * @param maxWait the maximal time a request waits for the flight
+     * @param maxFollowers the maximal number of requests waiting for one flight
+     * @return the installed listener
+     */
+    public static StatelessSingleFlight install(final Application application, final Duration maxWait, final int maxFollowers)
+    {
+        if (maxWait.isNegative() || maxWait.isZero() || maxFollowers < 1)
+        {
+            throw new IllegalArgumentException("maxWait and maxFollowers must be positive");
+        }
+        StatelessSingleFlight singleFlight = new StatelessSingleFlight(maxWait, maxFollowers);
+        application.setMetaData(KEY, singleFlight);
+        application.getRequestCycleListeners().add(singleFlight);
+        return singleFlight;
+    }
+
+    /**
+     * @return the listener of the current application or {@code null} if not installed
+     */
+    public static StatelessSingleFlight get()
+    {
+        return Application.get().getMetaData(KEY);
+    }
+
+    @Override
+    public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        if (!(handler instanceof ListenerRequestHandler)
+            || cycle.getRequest().getRequestParameters().getParameterValue(PARAMETER).isEmpty())
+        {
+            return;
+        }
+        final String key = StatelessResponseCache.key(cycle);
+        final Flight flight;
+        synchronized (flights)
+        {
+            Flight current = flights.get(key);
+            if (current == null)
+            {
+                current = new Flight(key);
+                flights.put(key, current);
+                cycle.setMetaData(FLIGHT, current);
+                return;
+            }
+            flight = current;
+        }
+        final String body = flight.await(maxWaitNanos, maxFollowers);
+        if (body != null)
+        {
+            throw new ReplayException(body);
+        }
+    }
+
+    @Override
+    public void onRequestHandlerExecuted(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        final Flight flight = cycle.getMetaData(FLIGHT);
+        if (flight == null)
+        {
+            return;
+        }
+        if (handler instanceof ListenerRequestHandler)
+        {
+            if (!flight.captured)
+            {
+                // the ajax response is rendered by the handler scheduled next, buffer it to share the body
+                if (!isSingleFlight((ListenerRequestHandler)handler) || !StatelessResponseCapture.open(cycle))
+                {
+                    end(cycle, flight, null);
+                    return;
+                }
+                flight.captured = true;
+            }
+        }
+        else if (flight.captured && handler instanceof IPartialPageRequestHandler)
+        {
+            end(cycle, flight, StatelessResponseCapture.text(cycle));
+            StatelessResponseCapture.close(cycle);
+        }
+    }
+
+    @Override
+    public IRequestHandler onException(final RequestCycle cycle, final Exception ex)
+    {
+        final Flight flight = cycle.getMetaData(FLIGHT);
+        if (flight != null)
+        {
+            end(cycle, flight, null);
+            if (flight.captured)
+            {
+                StatelessResponseCapture.abort(cycle);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void onEndRequest(final RequestCycle cycle)
+    {
+        final Flight flight = cycle.getMetaData(FLIGHT);
+        if (flight != null)
+        {
+            // no ajax response was rendered
+            end(cycle, flight, null);
+            if (flight.captured)
+            {
+                StatelessResponseCapture.abort(cycle);
+            }
+        }
+    }
+
+    /**
+     * Ends the flight of the current request and wakes up its followers.
+     *
+     * @param body the ajax response, {@code null} to let the followers process their requests on their own
+     */
+    private void end(final RequestCycle cycle, final Flight flight, final String body)
+    {
+        cycle.setMetaData(FLIGHT, null);
+        synchronized (flights)
+        {
+            flights.remove(flight.key, flight);
+        }
+        flight.land(body);
+    }
+
+    private static boolean isSingleFlight(final ListenerRequestHandler handler)
+    {
+        if (handler.getBehaviorIndex() == null)
+        {
+            return false;
+        }
+        final Component component = (Component)handler.getComponent();
+        final Behavior behavior = component.getBehaviorById(handler.getBehaviorIndex());
+        return behavior instanceof StatelessAjaxEventBehavior && ((StatelessAjaxEventBehavior)behavior).isSingleFlight();
+    }
+
+    /**
+     * A callback in progress.
+     */
+    private static class Flight
+    {
+        private final String key;
+        private boolean landed;
+        private String body;
+        private int followers;
+        /** the response of the leading request is buffered by {@link StatelessResponseCapture} */
+        private boolean captured;
+
+        private Flight(final String key)
+        {
+            this.key = key;
+        }
+
+        /**
+         * @return the response of the flight, {@code null} if the request has to be processed on its own
+         */
+        private synchronized String await(final long maxWaitNanos, final int maxFollowers)
+        {
+            if (followers >= maxFollowers)
+            {
+                return null;
+            }
+            followers++;
+            try
+            {
+                final long deadline = System.nanoTime() + maxWaitNanos;
+                while (!landed)
+                {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                    {
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return body;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            finally
+            {
+                followers--;
+            }
+        }
+
+        private synchronized void land(final String body)
+        {
+            this.body = body;
+            landed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Replaces the resolved handler with the response of the flight.
+     */
+    private static class ReplayException extends ResetResponseException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private ReplayException(final String body)
+        {
+            super(new TextRequestHandler("text/xml",
+                Application.get().getRequestCycleSettings().getResponseRequestEncoding(), body));
+        }
+    }
+}
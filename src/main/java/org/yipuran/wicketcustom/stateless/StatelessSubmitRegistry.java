@@ -0,0 +1,311 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.core.request.handler.ListenerRequestHandler;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.flow.ResetResponseException;
+import org.apache.wicket.request.handler.TextRequestHandler;
+import org.apache.wicket.util.string.StringValue;
+
+/**
+ * Suppresses duplicate submissions of stateless ajax forms.
+ * <p>
+ * {@code StatelessAjaxFormSubmitBehavior} with {@code setSuppressDuplicates(true)} sends the
+ * parameter {@value #PARAMETER} with a submission token derived from the form, the submitting
+ * behavior and the form values, so a double click on the same button of an unchanged form
+ * sends the same token twice.
+ * The first request with a token is processed as usual and its ajax response is remembered
+ * for a short time. A request with a known token does not instantiate the page: it waits
+ * for the first one to finish if necessary and is answered with the same response.
+ * </p>
+ * <p>
+ * The registry is guarded by striped locks, so waiting for one token does not block others.
+ * Nothing is stored in the page or session. Multipart forms send their parameters in the
+ * request body that is parsed only during form processing, they are not covered.
+ * </p>
+ * <pre>
+ * // in WebApplication#init()
+ * StatelessSubmitRegistry.install(this);
+ * </pre>
+ */
+public class StatelessSubmitRegistry implements IRequestCycleListener
+{
+    /** request parameter carrying the submission token */
+    public static final String PARAMETER = "_ysub";
+
+    private static final MetaDataKey<StatelessSubmitRegistry> KEY = new MetaDataKey<StatelessSubmitRegistry>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final MetaDataKey<Claim> CLAIM = new MetaDataKey<Claim>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final String EMPTY_AJAX_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><ajax-response></ajax-response>";
+
+    /** expired outcomes are purged every this many registrations */
+    private static final int PURGE_INTERVAL = 256;
+
+    private final long ttlNanos;
+
+    private final Object[] stripes;
+
+    /** submission token -> outcome of its first request */
+    private final ConcurrentMap<String, Outcome> outcomes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger registrations = new AtomicInteger();
+
+    /**
+     * @param ttl the time a token is remembered, also the maximal time a duplicate waits
+     * @param stripes the number of locks
+     */
+    protected StatelessSubmitRegistry(final Duration ttl, final int stripes)
+    {
+        ttlNanos = ttl.toNanos();
+        this.stripes = new Object[stripes];
+        for (int i = 0; i < stripes; i++)
+        {
+            this.stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Installs a registry remembering tokens for 30 seconds.
+     *
+     * @param application the application
+     * @return the installed registry
+     */
+    public static StatelessSubmitRegistry install(final Application application)
+    {
+        return install(application, Duration.ofSeconds(30));
+    }
+
+    /**
+     * Installs a registry as request cycle listener of the application.
+     *
+     * @param application the application
+     * @param ttl the time a token is remembered, also the maximal time a duplicate waits
+     * @return the installed registry
+     */
+    public static StatelessSubmitRegistry install(final Application application, final Duration ttl)
+    {
+        if (ttl.isNegative() || ttl.isZero())
+        {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        StatelessSubmitRegistry registry = new StatelessSubmitRegistry(ttl, 64);
+        application.setMetaData(KEY, registry);
+        application.getRequestCycleListeners().add(registry);
+        return registry;
+    }
+
+    /**
+     * @return the registry of the current application or {@code null} if not installed
+     */
+    public static StatelessSubmitRegistry get()
+    {
+        return Application.get().getMetaData(KEY);
+    }
+
+    @Override
+    public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        if (!(handler instanceof ListenerRequestHandler))
+        {
+            return;
+        }
+        StringValue value = cycle.getRequest().getRequestParameters().getParameterValue(PARAMETER);
+        if (value.isEmpty() || value.toString().length() < 16 || value.toString().length() > 64)
+        {
+            return;
+        }
+        final String token = value.toString();
+        final Object lock = stripe(token);
+        final Outcome outcome;
+        synchronized (lock)
+        {
+            Outcome known = outcomes.get(token);
+            if (known != null && known.isExpired())
+            {
+                outcomes.remove(token);
+                known = null;
+            }
+            if (known == null)
+            {
+                Outcome claimed = new Outcome(System.nanoTime() + ttlNanos);
+                outcomes.put(token, claimed);
+                cycle.setMetaData(CLAIM, new Claim(token, claimed));
+                if (registrations.incrementAndGet() % PURGE_INTERVAL == 0)
+                {
+                    outcomes.values().removeIf(Outcome::isExpired);
+                }
+                return;
+            }
+            outcome = known;
+            while (outcome.body == null && !outcome.failed)
+            {
+                long remaining = outcome.expires - System.nanoTime();
+                if (remaining <= 0)
+                {
+                    break;
+                }
+                try
+                {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        throw new ReplayException(outcome.body == null ? EMPTY_AJAX_RESPONSE : outcome.body);
+    }
+
+    @Override
+    public void onRequestHandlerExecuted(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        final Claim claim = cycle.getMetaData(CLAIM);
+        if (claim == null)
+        {
+            return;
+        }
+        if (handler instanceof ListenerRequestHandler)
+        {
+            // the ajax response is rendered by the handler scheduled next, capture it to remember the body
+            if (!claim.capturing && StatelessResponseCapture.open(cycle))
+            {
+                claim.capturing = true;
+            }
+        }
+        else if (claim.capturing && handler instanceof IPartialPageRequestHandler)
+        {
+            cycle.setMetaData(CLAIM, null);
+            complete(claim, StatelessResponseCapture.text(cycle));
+            StatelessResponseCapture.close(cycle);
+        }
+    }
+
+    @Override
+    public IRequestHandler onException(final RequestCycle cycle, final Exception ex)
+    {
+        final Claim claim = cycle.getMetaData(CLAIM);
+        if (claim != null)
+        {
+            cycle.setMetaData(CLAIM, null);
+            if (claim.capturing)
+            {
+                StatelessResponseCapture.abort(cycle);
+            }
+            complete(claim, null);
+        }
+        return null;
+    }
+
+    @Override
+    public void onEndRequest(final RequestCycle cycle)
+    {
+        final Claim claim = cycle.getMetaData(CLAIM);
+        if (claim != null)
+        {
+            // no ajax response was rendered
+            cycle.setMetaData(CLAIM, null);
+            if (claim.capturing)
+            {
+                StatelessResponseCapture.close(cycle);
+            }
+            complete(claim, null);
+        }
+    }
+
+    /**
+     * Records the outcome of the first request of a token and wakes up its duplicates.
+     *
+     * @param body the ajax response, {@code null} if it failed; the token is forgotten then
+     */
+    private void complete(final Claim claim, final String body)
+    {
+        final Object lock = stripe(claim.token);
+        synchronized (lock)
+        {
+            if (body == null)
+            {
+                claim.outcome.failed = true;
+                outcomes.remove(claim.token, claim.outcome);
+            }
+            else
+            {
+                claim.outcome.body = body;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private Object stripe(final String token)
+    {
+        return stripes[(token.hashCode() & 0x7fffffff) % stripes.length];
+    }
+
+    /**
+     * The outcome of the first request of a token.
+     */
+    private static class Outcome
+    {
+        private final long expires;
+        private String body;
+        private boolean failed;
+
+        private Outcome(final long expires)
+        {
+            this.expires = expires;
+        }
+
+        private boolean isExpired()
+        {
+            return System.nanoTime() - expires >= 0;
+        }
+    }
+
+    /**
+     * The token processed by the current request.
+     */
+    private static class Claim
+    {
+        private final String token;
+        private final Outcome outcome;
+        private boolean capturing;
+
+        private Claim(final String token, final Outcome outcome)
+        {
+            this.token = token;
+            this.outcome = outcome;
+        }
+    }
+
+    /**
+     * Replaces the resolved handler with the remembered ajax response.
+     */
+    private static class ReplayException extends ResetResponseException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private ReplayException(final String body)
+        {
+            super(new TextRequestHandler("text/xml",
+                Application.get().getRequestCycleSettings().getResponseRequestEncoding(), body));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.util.List;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.extensions.markup.html.tabs.ITab;
+import org.apache.wicket.extensions.markup.html.tabs.TabbedPanel;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.string.StringValue;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxFormSubmitBehavior;
+
+/**
+ * Stateless version of YAjaxTabbedPanel.
+ * <p>
+ * The selected tab index is kept in the page parameter {@link #getTabParameter()}, merged into
+ * the callback urls of the tab links by {@link StatelessEncoder}. When the page is reconstructed
+ * for a callback only the selected tab's content is built; a tab click then calls
+ * {@link #onBeforeChangeTab(AjaxRequestTarget, int)} and builds the clicked tab. Inside a form
+ * the tab links submit the form like the AjaxSubmitLink of YAjaxTabbedPanel, a validation error
+ * keeps the current tab.
+ * </p>
+ * <p>
+ * Other stateless callbacks of the page should merge {@link #getPageParameters()} into their
+ * parameters, otherwise the page is reconstructed with the default tab.
+ * </p>
+ * <pre>
+ * StatelessTabbedPanel&lt;ITab&gt; tabbedPanel = new StatelessTabbedPanel&lt;ITab&gt;("tabs", tabs){
+ *     ＠Override
+ *     protected void onBeforeChangeTab(AjaxRequestTarget target, int index){
+ *         // before switching from getSelectedTab() to index
+ *     }
+ * };
+ * queue(tabbedPanel);
+ * </pre>
+ *
+ * @param <T> the tab type
+ */
+public class StatelessTabbedPanel<T extends ITab> extends TabbedPanel<T>
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param id the component id
+     * @param tabs the tabs
+     */
+    public StatelessTabbedPanel(final String id, final List<T> tabs)
+    {
+        super(id, tabs);
+        setOutputMarkupId(true);
+    }
+
+    /**
+     * @param id the component id
+     * @param tabs the tabs
+     * @param model the model of the selected tab index, used when the page parameter is absent
+     */
+    public StatelessTabbedPanel(final String id, final List<T> tabs, final IModel<Integer> model)
+    {
+        super(id, tabs, model);
+        setOutputMarkupId(true);
+    }
+
+    /**
+     * @return the page parameter holding the selected tab index, by default the component id
+     */
+    protected String getTabParameter()
+    {
+        return getId();
+    }
+
+    /**
+     * @return the selected tab index as parameter to merge into callback urls
+     */
+    public PageParameters getPageParameters()
+    {
+        return new PageParameters().set(getTabParameter(), getSelectedTab());
+    }
+
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+        // only the tab of the request is built
+        final int index = requestedTab();
+        if (index >= 0 && index < getTabs().size() && getTabs().get(index).isVisible())
+        {
+            setSelectedTab(index);
+        }
+    }
+
+    private int requestedTab()
+    {
+        StringValue value = getPage().getPageParameters().get(getTabParameter());
+        if (value.isEmpty())
+        {
+            value = getRequest().getRequestParameters().getParameterValue(getTabParameter());
+        }
+        return value.toInt(-1);
+    }
+
+    @Override
+    protected WebMarkupContainer newLink(final String linkId, final int index)
+    {
+        final WebMarkupContainer link = new WebMarkupContainer(linkId);
+        link.add(newLinkBehavior(index));
+        return link;
+    }
+
+    /**
+     * @param index the tab index of the link
+     * @return the behavior switching to the tab, submitting the enclosing form if there is one
+     */
+    private Behavior newLinkBehavior(final int index)
+    {
+        if (findParent(Form.class) != null)
+        {
+            return new StatelessAjaxFormSubmitBehavior("click")
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void updateAjaxAttributes(final AjaxRequestAttributes attributes)
+                {
+                    super.updateAjaxAttributes(attributes);
+                    attributes.setPreventDefault(true);
+                }
+
+                @Override
+                protected PageParameters getPageParameters()
+                {
+                    return StatelessTabbedPanel.this.getPageParameters();
+                }
+
+                @Override
+                protected void onSubmit(final AjaxRequestTarget target)
+                {
+                    changeTab(target, index);
+                }
+            };
+        }
+        return new StatelessAjaxEventBehavior("click")
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void updateAjaxAttributes(final AjaxRequestAttributes attributes)
+            {
+                super.updateAjaxAttributes(attributes);
+                attributes.setPreventDefault(true);
+            }
+
+            @Override
+            protected PageParameters getPageParameters()
+            {
+                return StatelessTabbedPanel.this.getPageParameters();
+            }
+
+            @Override
+            protected void onEvent(final AjaxRequestTarget target)
+            {
+                changeTab(target, index);
+            }
+        };
+    }
+
+    private void changeTab(final AjaxRequestTarget target, final int index)
+    {
+        onBeforeChangeTab(target, index);
+        setSelectedTab(index);
+        target.add(this);
+    }
+
+    /**
+     * Called before a tab click switches the tab.
+     *
+     * @param target the ajax request target
+     * @param index the index of the clicked tab, {@link #getSelectedTab()} is still the current one
+     */
+    protected void onBeforeChangeTab(final AjaxRequestTarget target, final int index)
+    {
+    }
+
+    /**
+     * @return always {@literal true}
+     */
+    @Override
+    protected boolean getStatelessHint()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,478 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.IApplicationListener;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.application.IComponentInitializationListener;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.core.request.handler.ListenerRequestHandler;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures where the time of stateless ajax callbacks goes.
+ * <p>
+ * A stateless callback instantiates the page again before its behavior runs. For every
+ * callback to a stateless behavior on a page created by the request four phases are measured:
+ * </p>
+ * <ul>
+ * <li>construction - from the resolved listener handler until the page is constructed,
+ * i.e. until the first component is initialized</li>
+ * <li>lookup - initialization of the page and lookup of the component and behavior</li>
+ * <li>handler - the behavior's event handler</li>
+ * <li>render - rendering of the ajax response</li>
+ * </ul>
+ * <p>
+ * The phases are aggregated per page class and behavior into histograms, available through
+ * {@link #getStatistics()} and as the MXBean {@code org.yipuran.wicketcustom:type=StatelessTimings}.
+ * A behavior is identified by its class and its component path with the repeater indices replaced
+ * by {@code *}, so that all rows of a repeater share one entry. Beyond {@value #MAX_ENTRIES} entries
+ * the behaviors of new paths are aggregated per page class and behavior class only.
+ * </p>
+ * <pre>
+ * // in WebApplication#init()
+ * StatelessTimings.install(this);
+ * </pre>
+ */
+public class StatelessTimings implements IRequestCycleListener, IComponentInitializationListener, StatelessTimingsMXBean
+{
+    private static final Logger LOG = LoggerFactory.getLogger(StatelessTimings.class);
+
+    private static final MetaDataKey<StatelessTimings> KEY = new MetaDataKey<StatelessTimings>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private static final MetaDataKey<Probe> PROBE = new MetaDataKey<Probe>()
+    {
+        private static final long serialVersionUID = 1L;
+    };
+
+    /** the number of entries keyed by component path */
+    public static final int MAX_ENTRIES = 1000;
+
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    protected StatelessTimings()
+    {
+    }
+
+    /**
+     * Installs the instrumentation and registers it with the platform MBean server.
+     *
+     * @param application the application
+     * @return the installed instrumentation
+     */
+    public static StatelessTimings install(final Application application)
+    {
+        return install(application, true);
+    }
+
+    /**
+     * Installs the instrumentation as request cycle and component initialization listener.
+     *
+     * @param application the application
+     * @param jmx {@literal true} to register the MXBean
+     * @return the installed instrumentation
+     */
+    public static StatelessTimings install(final Application application, final boolean jmx)
+    {
+        StatelessTimings timings = new StatelessTimings();
+        application.setMetaData(KEY, timings);
+        application.getRequestCycleListeners().add(timings);
+        application.getComponentInitializationListeners().add(timings);
+        if (jmx)
+        {
+            timings.register(application);
+        }
+        return timings;
+    }
+
+    /**
+     * @return the instrumentation of the current application or {@code null} if not installed
+     */
+    public static StatelessTimings get()
+    {
+        return Application.get().getMetaData(KEY);
+    }
+
+    @Override
+    public List<Statistics> getStatistics()
+    {
+        return new ArrayList<>(statistics.values());
+    }
+
+    @Override
+    public void reset()
+    {
+        statistics.clear();
+    }
+
+    @Override
+    public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        if (handler instanceof ListenerRequestHandler && cycle.getMetaData(PROBE) == null)
+        {
+            ListenerRequestHandler listener = (ListenerRequestHandler)handler;
+            if (!listener.isPageInstanceCreated() && listener.getBehaviorIndex() != null)
+            {
+                cycle.setMetaData(PROBE, new Probe(listener, System.nanoTime()));
+            }
+        }
+    }
+
+    @Override
+    public void onInitialize(final Component component)
+    {
+        RequestCycle cycle = RequestCycle.get();
+        Probe probe = cycle == null ? null : cycle.getMetaData(PROBE);
+        if (probe != null && probe.constructed == 0)
+        {
+            probe.constructed = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void onRequestHandlerScheduled(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        Probe probe = cycle.getMetaData(PROBE);
+        if (probe != null && probe.found == 0 && handler instanceof IPartialPageRequestHandler)
+        {
+            // the ajax target is scheduled right before the behavior responds
+            probe.found = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void onRequestHandlerExecuted(final RequestCycle cycle, final IRequestHandler handler)
+    {
+        Probe probe = cycle.getMetaData(PROBE);
+        if (probe == null)
+        {
+            return;
+        }
+        if (handler == probe.handler)
+        {
+            probe.handled = System.nanoTime();
+            Component component = (Component)probe.handler.getComponent();
+            Behavior behavior = component.getBehaviorById(probe.handler.getBehaviorIndex());
+            if (behavior.getStatelessHint(component))
+            {
+                probe.behaviorClass = behavior.getClass().getName();
+                probe.behavior = normalize(probe.handler.getComponentPath()) + ":" + probe.behaviorClass;
+            }
+        }
+        else if (probe.handled != 0 && probe.rendered == 0 && handler instanceof IPartialPageRequestHandler)
+        {
+            probe.rendered = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void onEndRequest(final RequestCycle cycle)
+    {
+        Probe probe = cycle.getMetaData(PROBE);
+        if (probe == null || probe.behavior == null)
+        {
+            return;
+        }
+        cycle.setMetaData(PROBE, null);
+        long found = probe.found == 0 ? probe.handled : probe.found;
+        long constructed = probe.constructed == 0 || probe.constructed > found ? found : probe.constructed;
+        long rendered = probe.rendered == 0 ? probe.handled : probe.rendered;
+        String pageClass = probe.handler.getPageClass().getName();
+        String behavior = probe.behavior;
+        if (statistics.size() >= MAX_ENTRIES && !statistics.containsKey(pageClass + " " + behavior))
+        {
+            behavior = "*:" + probe.behaviorClass;
+        }
+        String key = behavior;
+        statistics.computeIfAbsent(pageClass + " " + key, k -> new Statistics(pageClass, key))
+            .record(constructed - probe.start, found - constructed, probe.handled - found, rendered - probe.handled);
+    }
+
+    /**
+     * @return the component path with the numeric ids of repeater items replaced by {@code *}
+     */
+    static String normalize(final String path)
+    {
+        StringBuilder sb = new StringBuilder(path.length());
+        int start = 0;
+        while (start <= path.length())
+        {
+            int end = path.indexOf(':', start);
+            if (end < 0)
+            {
+                end = path.length();
+            }
+            if (start > 0)
+            {
+                sb.append(':');
+            }
+            boolean numeric = end > start;
+            for (int i = start; i < end && numeric; i++)
+            {
+                numeric = Character.isDigit(path.charAt(i));
+            }
+            sb.append(numeric ? "*" : path.substring(start, end));
+            start = end + 1;
+        }
+        return sb.toString();
+    }
+
+    private void register(final Application application)
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.yipuran.wicketcustom:type=StatelessTimings,application="
+                + ObjectName.quote(application.getName()));
+            server.registerMBean(this, name);
+            application.getApplicationListeners().add(new IApplicationListener()
+            {
+                @Override
+                public void onBeforeDestroyed(final Application application)
+                {
+                    try
+                    {
+                        server.unregisterMBean(name);
+                    }
+                    catch (JMException e)
+                    {
+                        LOG.warn("cannot unregister " + name, e);
+                    }
+                }
+            });
+        }
+        catch (JMException e)
+        {
+            LOG.warn("cannot register StatelessTimings MXBean", e);
+        }
+    }
+
+    /**
+     * Timestamps of the stateless callback of the current request.
+     */
+    private static class Probe
+    {
+        private final ListenerRequestHandler handler;
+        private final long start;
+        private long constructed;
+        private long found;
+        private long handled;
+        private long rendered;
+        private String behavior;
+        private String behaviorClass;
+
+        private Probe(final ListenerRequestHandler handler, final long start)
+        {
+            this.handler = handler;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Timings of one behavior on one page class.
+     */
+    public static final class Statistics
+    {
+        private final String pageClass;
+        private final String behavior;
+        private final Histogram construction = new Histogram();
+        private final Histogram lookup = new Histogram();
+        private final Histogram handler = new Histogram();
+        private final Histogram render = new Histogram();
+        private final Histogram total = new Histogram();
+
+        private Statistics(final String pageClass, final String behavior)
+        {
+            this.pageClass = pageClass;
+            this.behavior = behavior;
+        }
+
+        private void record(final long construction, final long lookup, final long handler, final long render)
+        {
+            this.construction.record(construction);
+            this.lookup.record(lookup);
+            this.handler.record(handler);
+            this.render.record(render);
+            total.record(construction + lookup + handler + render);
+        }
+
+        public String getPageClass()
+        {
+            return pageClass;
+        }
+
+        /**
+         * @return the component path, repeater indices replaced by {@code *}, and the class of the behavior
+         */
+        public String getBehavior()
+        {
+            return behavior;
+        }
+
+        public long getCount()
+        {
+            return total.getCount();
+        }
+
+        public Histogram getConstruction()
+        {
+            return construction;
+        }
+
+        public Histogram getLookup()
+        {
+            return lookup;
+        }
+
+        public Histogram getHandler()
+        {
+            return handler;
+        }
+
+        public Histogram getRender()
+        {
+            return render;
+        }
+
+        public Histogram getTotal()
+        {
+            return total;
+        }
+    }
+
+    /**
+     * Histogram of durations with fixed buckets from 0.1ms to 5s.
+     */
+    public static final class Histogram
+    {
+        /** upper bounds of the buckets in microseconds, the last bucket is unbounded */
+        private static final long[] BOUNDS = { 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000,
+            100000, 250000, 500000, 1000000, 2500000, 5000000 };
+
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram()
+        {
+        }
+
+        private void record(final long nanos)
+        {
+            long micros = Math.max(0, nanos / 1000);
+            int i = 0;
+            while (i < BOUNDS.length && micros > BOUNDS[i])
+            {
+                i++;
+            }
+            counts.incrementAndGet(i);
+            count.increment();
+            sum.add(micros);
+            max.accumulate(micros);
+        }
+
+        public long getCount()
+        {
+            return count.sum();
+        }
+
+        public double getMeanMillis()
+        {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / 1000.0 / n;
+        }
+
+        public double getMaxMillis()
+        {
+            return max.get() / 1000.0;
+        }
+
+        public double getP50Millis()
+        {
+            return getPercentileMillis(50);
+        }
+
+        public double getP95Millis()
+        {
+            return getPercentileMillis(95);
+        }
+
+        public double getP99Millis()
+        {
+            return getPercentileMillis(99);
+        }
+
+        /**
+         * @param percentile 0 - 100
+         * @return the upper bound of the bucket holding the percentile, the maximum for the last bucket
+         */
+        public double getPercentileMillis(final double percentile)
+        {
+            long n = count.sum();
+            if (n == 0)
+            {
+                return 0;
+            }
+            long rank = (long)Math.ceil(n * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS.length; i++)
+            {
+                seen += counts.get(i);
+                if (seen >= rank)
+                {
+                    return Math.min(BOUNDS[i], max.get()) / 1000.0;
+                }
+            }
+            return getMaxMillis();
+        }
+
+        /**
+         * @return the upper bounds of the buckets in microseconds
+         */
+        public long[] getBucketBoundsMicros()
+        {
+            return BOUNDS.clone();
+        }
+
+        /**
+         * @return the number of durations per bucket, one more than the bounds
+         */
+        public long[] getBucketCounts()
+        {
+            long[] a = new long[counts.length()];
+            for (int i = 0; i < a.length; i++)
+            {
+                a[i] = counts.get(i);
+            }
+            return a;
+        }
+
+        @Override
+        public String toString()
+        {
+            return getCount() + " calls, mean " + getMeanMillis() + "ms, p95 " + getP95Millis() + "ms, max " + getMaxMillis() + "ms";
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.yipuran.wicketcustom.stateless;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link StatelessTimings}.
+ */
+public interface StatelessTimingsMXBean
+{
+    /**
+     * @return the timings per page class and behavior
+     */
+    List<StatelessTimings.Statistics> getStatistics();
+
+    /**
+     * Clears all collected timings.
+     */
+    void reset();
+}
@@ -0,0 +1,49 @@
+package org.yipuran.wicketcustom.stateless.behaviors;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.yipuran.wicketcustom.stateless.StatelessEncoder;
+
+/**
+ * Remembers the stateless callback url of a behavior for the current request.
+ * <p>
+ * The callback url is asked for several times per render (ajax attributes, script and header
+ * contribution); it is computed once and reused while the page parameters stay equal.
+ * The owning behavior clears the memo on detach.
+ * </p>
+ */
+final class CallbackUrlMemo implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private transient String callbackUrl;
+
+    private transient PageParameters callbackParams;
+
+    /**
+     * @param params the page parameters merged into the callback url
+     * @param url the callback url of the behavior without the page parameters
+     * @return the callback url carrying the page parameters
+     */
+    CharSequence get(final PageParameters params, final Supplier<CharSequence> url)
+    {
+        if (callbackUrl != null && Objects.equals(params, callbackParams))
+        {
+            return callbackUrl;
+        }
+
+        callbackUrl = StatelessEncoder.mergeParameters(Url.parse(url.get().toString()), params).toString();
+        callbackParams = params == null ? null : new PageParameters(params);
+        return callbackUrl;
+    }
+
+    void clear()
+    {
+        callbackUrl = null;
+        callbackParams = null;
+    }
+}
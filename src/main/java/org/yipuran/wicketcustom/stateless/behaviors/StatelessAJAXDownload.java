@@ -0,0 +1,172 @@
+package org.yipuran.wicketcustom.stateless.behaviors;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.behavior.AbstractAjaxBehavior;
+import org.apache.wicket.core.request.handler.IPartialPageRequestHandler;
+import org.apache.wicket.core.util.string.JavaScriptUtils;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.handler.resource.ResourceStreamRequestHandler;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.ContentDisposition;
+import org.apache.wicket.util.resource.AbstractResourceStreamWriter;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.danekja.java.util.function.serializable.SerializableConsumer;
+import org.danekja.java.util.function.serializable.SerializableSupplier;
+import org.yipuran.wicketcustom.stateless.StatelessEncoder;
+
+/**
+ * Stateless version of AJAXDownload.
+ * <p>
+ * The download url is a listener url of the stateless page, merged with the parameters of
+ * {@link #getPageParameters()} like {@link StatelessAjaxEventBehavior}. The download request
+ * reconstructs the page from these parameters, so the page is not stored, the url does not
+ * expire and any node can serve it.
+ * </p>
+ * <pre>
+ * final StatelessAJAXDownload download = StatelessAJAXDownload.of(out-&gt;{
+ *     // write to out
+ * }, ()-&gt;"text/csv", ()-&gt;"foo.csv");
+ * queue(new WebMarkupContainer("csvout").add(download)
+ *     .add(StatelessAjaxEventBehavior.onEvent("click", t-&gt;download.callBackDownload(t))));
+ * </pre>
+ */
+public abstract class StatelessAJAXDownload extends AbstractAjaxBehavior
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @return the content to download
+     */
+    protected abstract IResourceStream getResourceStream();
+
+    /**
+     * @return the file name of the download
+     */
+    protected String getFileName()
+    {
+        return null;
+    }
+
+    /**
+     * @return the parameters the page needs to be reconstructed with, may be {@code null}
+     */
+    protected PageParameters getPageParameters()
+    {
+        return null;
+    }
+
+    @Override
+    protected void onBind()
+    {
+        super.onBind();
+
+        //generate behavior id
+        getComponent().getBehaviorId(this);
+    }
+
+    @Override
+    public CharSequence getCallbackUrl()
+    {
+        final Url url = Url.parse(super.getCallbackUrl().toString());
+
+        return StatelessEncoder.mergeParameters(url, getPageParameters()).toString();
+    }
+
+    /**
+     * Starts the download from an ajax response.
+     *
+     * @param target the ajax request target
+     */
+    public void callBackDownload(final IPartialPageRequestHandler target)
+    {
+        target.appendJavaScript("setTimeout(function(){window.location.href='"
+            + JavaScriptUtils.escapeQuotes(getCallbackUrl()) + "';}, 100);");
+    }
+
+    @Override
+    public void onRequest()
+    {
+        final ResourceStreamRequestHandler handler = new ResourceStreamRequestHandler(getResourceStream(), getFileName());
+        handler.setContentDisposition(ContentDisposition.ATTACHMENT);
+        getComponent().getRequestCycle().scheduleRequestHandlerAfterCurrent(handler);
+    }
+
+    /**
+     * @return always {@literal true}
+     */
+    @Override
+    public boolean getStatelessHint(final Component component)
+    {
+        return true;
+    }
+
+    /**
+     * Creates a {@link StatelessAJAXDownload} based on lambda expressions.
+     *
+     * @param write writes the content to the OutputStream
+     * @param getConteType supplies the content type
+     * @param getName supplies the file name
+     * @return the {@link StatelessAJAXDownload}
+     */
+    public static StatelessAJAXDownload of(final SerializableConsumer<OutputStream> write,
+        final SerializableSupplier<String> getConteType, final SerializableSupplier<String> getName)
+    {
+        return of(write, getConteType, getName, () -> null);
+    }
+
+    /**
+     * Creates a {@link StatelessAJAXDownload} based on lambda expressions.
+     *
+     * @param write writes the content to the OutputStream
+     * @param getConteType supplies the content type
+     * @param getName supplies the file name
+     * @param getParameters supplies the parameters the page needs to be reconstructed with
+     * @return the {@link StatelessAJAXDownload}
+     */
+    public static StatelessAJAXDownload of(final SerializableConsumer<OutputStream> write,
+        final SerializableSupplier<String> getConteType, final SerializableSupplier<String> getName,
+        final SerializableSupplier<PageParameters> getParameters)
+    {
+        return new StatelessAJAXDownload()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected IResourceStream getResourceStream()
+            {
+                return new AbstractResourceStreamWriter()
+                {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public void write(final OutputStream out) throws IOException
+                    {
+                        write.accept(out);
+                        out.close();
+                    }
+
+                    @Override
+                    public String getContentType()
+                    {
+                        return getConteType.get();
+                    }
+                };
+            }
+
+            @Override
+            protected String getFileName()
+            {
+                return getName.get();
+            }
+
+            @Override
+            protected PageParameters getPageParameters()
+            {
+                return getParameters.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,218 @@
+package org.yipuran.wicketcustom.stateless.behaviors;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.Page;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxCallListener;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.behavior.InvalidBehaviorIdException;
+import org.apache.wicket.core.request.handler.ComponentNotFoundException;
+import org.apache.wicket.core.request.handler.PageAndComponentProvider;
+import org.apache.wicket.core.util.string.JavaScriptUtils;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.lang.Args;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONException;
+
+/**
+ * Dispatches batched stateless ajax events in one request.
+ *
+ * <p>
+ * Every event of a {@link StatelessAjaxEventBehavior} or {@link StatelessAjaxFormComponentUpdatingBehavior}
+ * is a request that reconstructs the page. Behaviors switched to batch mode with {@code setBatched(true)}
+ * do not send their own request: the event is queued on the client and all events queued within
+ * the batch window are sent together to this behavior, which must be added to the page.
+ * The events are dispatched to their behaviors in the order they occurred, and everything the
+ * behaviors add to the {@link AjaxRequestTarget} is answered in a single ajax response, so a burst
+ * of events costs one page reconstruction.
+ * </p>
+ * <p>
+ * The values of the form components that fired the events are sent along with the batch.
+ * The batch request carries the page parameters of the page, not the ones of the single behaviors.
+ * Form submitting behaviors cannot be batched.
+ * </p>
+ * <pre>
+ * public HomePage(PageParameters parameters){
+ *    super(parameters);
+ *    add(new StatelessAjaxBatchBehavior());
+ *    queue(new TextField&lt;String&gt;("a").add(StatelessOnChangeAjaxBehavior.onChange(t-&gt;t.add(sum)).setBatched(true)));
+ *    queue(new TextField&lt;String&gt;("b").add(StatelessOnChangeAjaxBehavior.onChange(t-&gt;t.add(sum)).setBatched(true)));
+ * }
+ * </pre>
+ */
+public class StatelessAjaxBatchBehavior extends AbstractDefaultAjaxBehavior
+{
+	private static final long serialVersionUID = 1L;
+
+	/** request parameter carrying the queued events as {@code [[component path, behavior id], ...]} */
+	public static final String PARAMETER = "_ybatch";
+
+	/** the maximal number of events dispatched per request */
+	public static final int MAX_EVENTS = 64;
+
+	private static final ResourceReference JAVASCRIPT = new JavaScriptResourceReference(StatelessAjaxBatchBehavior.class, "stateless-batch.js");
+
+	private Duration window = Duration.ofMillis(50);
+
+	private final CallbackUrlMemo callbackUrl = new CallbackUrlMemo();
+
+	/**
+	 * Sets the time events are collected before the batch is sent.
+	 *
+	 * @param window the batch window
+	 * @return this behavior
+	 */
+	public StatelessAjaxBatchBehavior setWindow(Duration window)
+	{
+		this.window = Args.notNull(window, "window");
+		return this;
+	}
+
+	public Duration getWindow()
+	{
+		return window;
+	}
+
+	@Override
+	protected void onBind()
+	{
+		super.onBind();
+
+		if (!(getComponent() instanceof Page))
+		{
+			throw new IllegalStateException(getClass().getSimpleName() + " can only be added to a page");
+		}
+		getComponent().getBehaviorId(this);
+	}
+
+	@Override
+	public CharSequence getCallbackUrl()
+	{
+		return callbackUrl.get(getComponent().getPage().getPageParameters(), super::getCallbackUrl);
+	}
+
+	@Override
+	public void detach(final Component component)
+	{
+		callbackUrl.clear();
+		super.detach(component);
+	}
+
+	@Override
+	public void renderHead(Component component, IHeaderResponse response)
+	{
+		super.renderHead(component, response);
+		response.render(JavaScriptHeaderItem.forReference(JAVASCRIPT));
+	}
+
+	@Override
+	protected void respond(AjaxRequestTarget target)
+	{
+		final Page page = getComponent().getPage();
+		final JSONArray events;
+		try
+		{
+			events = new JSONArray(page.getRequest().getRequestParameters().getParameterValue(PARAMETER).toString("[]"));
+		}
+		catch (JSONException e)
+		{
+			return;
+		}
+		final int count = Math.min(events.length(), MAX_EVENTS);
+		for (int i = 0; i < count; i++)
+		{
+			final JSONArray event = events.optJSONArray(i);
+			if (event == null)
+			{
+				continue;
+			}
+			final Component component = resolve(page, event.optString(0, null));
+			if (component == null || !component.canCallListener())
+			{
+				continue;
+			}
+			final Behavior behavior;
+			try
+			{
+				behavior = component.getBehaviorById(event.optInt(1, -1));
+			}
+			catch (InvalidBehaviorIdException e)
+			{
+				continue;
+			}
+			if (!behavior.canCallListener(component))
+			{
+				continue;
+			}
+			if (behavior instanceof StatelessAjaxEventBehavior && ((StatelessAjaxEventBehavior)behavior).isPlainEvent())
+			{
+				((StatelessAjaxEventBehavior)behavior).dispatch(target);
+			}
+			else if (behavior instanceof StatelessAjaxFormComponentUpdatingBehavior)
+			{
+				((StatelessAjaxFormComponentUpdatingBehavior)behavior).dispatch(target);
+			}
+		}
+	}
+
+	/**
+	 * @return always {@literal true}
+	 */
+	@Override
+	public boolean getStatelessHint(final Component component)
+	{
+		return true;
+	}
+
+	private static Component resolve(Page page, String path)
+	{
+		if (path == null || path.isEmpty())
+		{
+			return null;
+		}
+		final Component component = page.get(path);
+		if (component != null)
+		{
+			return component;
+		}
+		// the page was just created for this request and its queued components are not resolved yet:
+		// resolve the path the same way as the listener request handler of a single event
+		try
+		{
+			return (Component)new PageAndComponentProvider(page, path).getComponent();
+		}
+		catch (ComponentNotFoundException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Turns the ajax call of the given behavior into an event queued for the batch behavior of the page.
+	 * Nothing changes when the page has no batch behavior.
+	 */
+	static void enqueue(Behavior behavior, Component component, AjaxRequestAttributes attributes)
+	{
+		final Page page = component.getPage();
+		final List<StatelessAjaxBatchBehavior> batches = page.getBehaviors(StatelessAjaxBatchBehavior.class);
+		if (batches.isEmpty())
+		{
+			return;
+		}
+		final StatelessAjaxBatchBehavior batch = batches.get(0);
+		final String script = "return yipuranStatelessBatch.offer(attrs, '"
+			+ JavaScriptUtils.escapeQuotes(batch.getCallbackUrl()) + "', '"
+			+ JavaScriptUtils.escapeQuotes(component.getPageRelativePath()) + "', "
+			+ component.getBehaviorId(behavior) + ", " + batch.window.toMillis() + ");";
+		attributes.getAjaxCallListeners().add(new AjaxCallListener().onPrecondition(script));
+	}
+}
@@ -17,17 +17,28 @@
  */
 package org.yipuran.wicketcustom.stateless.behaviors;
 
+import java.time.Duration;
+
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxEventBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
-import org.apache.wicket.request.Url;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes.Method;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.util.lang.Args;
 import org.danekja.java.util.function.serializable.SerializableConsumer;
-import org.yipuran.wicketcustom.stateless.StatelessEncoder;
+import org.yipuran.wicketcustom.stateless.StatelessResponseCache;
+import org.yipuran.wicketcustom.stateless.StatelessSingleFlight;
 
 /**
  * Stateless version of AjaxEventBehavior
+ * <p>
+ * Besides the stateless callback events can be batched ({@link #setBatched(boolean)}),
+ * their responses cached ({@link #setCacheable(Duration)}) and identical concurrent
+ * callbacks coalesced ({@link #setSingleFlight(boolean)}).
+ * These options apply to plain events only: {@link StatelessAjaxFormSubmitBehavior} ignores them,
+ * because a form submission can neither be deferred nor answered with another response.
+ * </p>
  *
  * @author Andrea Del Bene
  *
@@ -36,6 +47,14 @@ public abstract class StatelessAjaxEventBehavior extends AjaxEventBehavior
 {
     private static final long serialVersionUID = 2387070289758596955L;
 
+    private final CallbackUrlMemo callbackUrl = new CallbackUrlMemo();
+
+    private boolean batched;
+
+    private Duration cacheMaxAge;
+
+    private boolean singleFlight;
+
     public StatelessAjaxEventBehavior(final String event)
     {
         super(event);
@@ -53,10 +72,14 @@ public abstract class StatelessAjaxEventBehavior extends AjaxEventBehavior
     @Override
     public CharSequence getCallbackUrl()
     {
-        final Url url = Url.parse(super.getCallbackUrl().toString());
-        final PageParameters params = getPageParameters();
+        return callbackUrl.get(getPageParameters(), super::getCallbackUrl);
+    }
 
-        return StatelessEncoder.mergeParameters(url, params).toString();
+    @Override
+    public void detach(final Component component)
+    {
+        callbackUrl.clear();
+        super.detach(component);
     }
 
     protected abstract PageParameters getPageParameters();
@@ -69,6 +92,104 @@ public abstract class StatelessAjaxEventBehavior extends AjaxEventBehavior
     {
         return true;
     }
+
+    @Override
+    protected void updateAjaxAttributes(final AjaxRequestAttributes attributes)
+    {
+        super.updateAjaxAttributes(attributes);
+
+        if (getCacheMaxAge() != null)
+        {
+            attributes.setMethod(Method.GET);
+        }
+        if (isSingleFlight())
+        {
+            attributes.getExtraParameters().put(StatelessSingleFlight.PARAMETER, "1");
+        }
+        if (isBatched())
+        {
+            StatelessAjaxBatchBehavior.enqueue(this, getComponent(), attributes);
+        }
+    }
+
+    /**
+     * @return {@literal false} if the behavior submits a form, which cannot be batched, cached or coalesced
+     */
+    boolean isPlainEvent()
+    {
+        return true;
+    }
+
+    /**
+     * Queues the events for the {@link StatelessAjaxBatchBehavior} of the page instead of
+     * sending a request per event. Without a batch behavior on the page every event is sent as usual.
+     * Ignored by form submitting behaviors.
+     *
+     * @param batched {@literal true} to batch the events
+     * @return this behavior
+     */
+    public StatelessAjaxEventBehavior setBatched(final boolean batched)
+    {
+        this.batched = batched;
+        return this;
+    }
+
+    public boolean isBatched()
+    {
+        return batched && isPlainEvent();
+    }
+
+    /**
+     * Marks the responses of this behavior as depending only on the callback url, i.e. on the
+     * page parameters. The callback is sent as GET request, and with {@link StatelessResponseCache}
+     * installed the response is cached for the given time and repeated requests are answered
+     * without instantiating the page. Ignored by form submitting behaviors.
+     *
+     * @param maxAge the time a response stays valid, {@code null} to disable caching
+     * @return this behavior
+     */
+    public StatelessAjaxEventBehavior setCacheable(final Duration maxAge)
+    {
+        cacheMaxAge = maxAge;
+        return this;
+    }
+
+    /**
+     * @return the time a response stays valid, {@code null} if not cacheable
+     */
+    public Duration getCacheMaxAge()
+    {
+        return isPlainEvent() ? cacheMaxAge : null;
+    }
+
+    /**
+     * Lets identical concurrent callbacks of this behavior share one computation: with
+     * {@link StatelessSingleFlight} installed, requests arriving while an identical one is
+     * processed wait for it and get its response. The response is shared between users.
+     * Ignored by form submitting behaviors.
+     *
+     * @param singleFlight {@literal true} to coalesce identical concurrent callbacks
+     * @return this behavior
+     */
+    public StatelessAjaxEventBehavior setSingleFlight(final boolean singleFlight)
+    {
+        this.singleFlight = singleFlight;
+        return this;
+    }
+
+    public boolean isSingleFlight()
+    {
+        return singleFlight && isPlainEvent();
+    }
+
+    /**
+     * Handles an event dispatched by {@link StatelessAjaxBatchBehavior}.
+     */
+    void dispatch(final AjaxRequestTarget target)
+    {
+        onEvent(target);
+    }
+
     /**
 	 * Creates an {@link StatelessAjaxEventBehavior} based on lambda expressions
 	 * @param eventName the event name
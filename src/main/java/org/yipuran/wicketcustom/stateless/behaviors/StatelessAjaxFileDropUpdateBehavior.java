@@ -0,0 +1,147 @@
+package org.yipuran.wicketcustom.stateless.behaviors;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.extensions.ajax.AjaxFileDropBehavior;
+import org.apache.wicket.markup.html.form.upload.FileUpload;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.yipuran.wicketcustom.function.SerialThrowableBiConsumer;
+import org.yipuran.wicketcustom.stateless.StatelessEncoder;
+
+/**
+ * Stateless version of AjaxFileDropUpdateBehavior.
+ * <p>
+ * Same functional API as {@code org.yipuran.wicketcustom.ajax.AjaxFileDropUpdateBehavior}, but
+ * the behavior id is fixed on bind and the callback url is merged with the parameters of
+ * {@link #getPageParameters()} like {@link StatelessAjaxEventBehavior}, so the drop zone does not
+ * make the page stateful. Uploaded files are handled in the request that rebuilds the page.
+ * </p>
+ * <pre>
+ * queue(new WebMarkupContainer("drop").add(StatelessAjaxFileDropUpdateBehavior.of(
+ *     fu-&gt;fu.getContentType().startsWith("image/"),
+ *     (t, list)-&gt;{
+ *         // t=AjaxRequestTarget list=List&lt;FileUpload&gt;
+ *     }, (t, x)-&gt;{
+ *         // t=AjaxRequestTarget x=FileUploadException
+ *     })));
+ * </pre>
+ */
+public class StatelessAjaxFileDropUpdateBehavior extends AjaxFileDropBehavior
+{
+    private static final long serialVersionUID = 1L;
+
+    private final SerialThrowableBiConsumer<AjaxRequestTarget, List<FileUpload>> upload;
+
+    private final BiConsumer<AjaxRequestTarget, FileUploadException> error;
+
+    private final Predicate<FileUpload> predicate;
+
+    /**
+     * @param predicate the files to accept, {@code null} for all
+     * @param upload handles the accepted files
+     * @param error handles upload errors and exceptions of {@code upload}
+     */
+    protected StatelessAjaxFileDropUpdateBehavior(final Predicate<FileUpload> predicate,
+        final SerialThrowableBiConsumer<AjaxRequestTarget, List<FileUpload>> upload,
+        final BiConsumer<AjaxRequestTarget, FileUploadException> error)
+    {
+        this.predicate = predicate;
+        this.upload = upload;
+        this.error = error;
+    }
+
+    /**
+     * Creates a {@link StatelessAjaxFileDropUpdateBehavior}.
+     *
+     * @param upload handles the uploaded files
+     * @param error handles upload errors and exceptions of {@code upload}
+     * @return the behavior
+     */
+    public static StatelessAjaxFileDropUpdateBehavior of(final SerialThrowableBiConsumer<AjaxRequestTarget, List<FileUpload>> upload,
+        final BiConsumer<AjaxRequestTarget, FileUploadException> error)
+    {
+        return new StatelessAjaxFileDropUpdateBehavior(null, upload, error);
+    }
+
+    /**
+     * Creates a {@link StatelessAjaxFileDropUpdateBehavior} accepting only some files.
+     *
+     * @param predicate the files to accept
+     * @param upload handles the accepted files, not called if no file is accepted
+     * @param error handles upload errors and exceptions of {@code upload}
+     * @return the behavior
+     */
+    public static StatelessAjaxFileDropUpdateBehavior of(final Predicate<FileUpload> predicate,
+        final SerialThrowableBiConsumer<AjaxRequestTarget, List<FileUpload>> upload,
+        final BiConsumer<AjaxRequestTarget, FileUploadException> error)
+    {
+        return new StatelessAjaxFileDropUpdateBehavior(predicate, upload, error);
+    }
+
+    @Override
+    protected void onBind()
+    {
+        super.onBind();
+
+        //generate behavior id
+        getComponent().getBehaviorId(this);
+    }
+
+    @Override
+    public CharSequence getCallbackUrl()
+    {
+        final Url url = Url.parse(super.getCallbackUrl().toString());
+
+        return StatelessEncoder.mergeParameters(url, getPageParameters()).toString();
+    }
+
+    /**
+     * @return the parameters the page needs to be reconstructed with, may be {@code null}
+     */
+    protected PageParameters getPageParameters()
+    {
+        return null;
+    }
+
+    @Override
+    protected void onFileUpload(final AjaxRequestTarget target, final List<FileUpload> files)
+    {
+        try
+        {
+            if (predicate == null)
+            {
+                upload.accept(target, files);
+            }
+            else if (files.stream().anyMatch(predicate))
+            {
+                upload.accept(target, files.stream().filter(predicate).collect(Collectors.toList()));
+            }
+        }
+        catch (Exception e)
+        {
+            error.accept(target, new FileUploadException(e.getMessage(), e));
+        }
+    }
+
+    @Override
+    protected void onError(final AjaxRequestTarget target, final FileUploadException fux)
+    {
+        error.accept(target, fux);
+    }
+
+    /**
+     * @return always {@literal true}
+     */
+    @Override
+    public boolean getStatelessHint(final Component component)
+    {
+        return true;
+    }
+}
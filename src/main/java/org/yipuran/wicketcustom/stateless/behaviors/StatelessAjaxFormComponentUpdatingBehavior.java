@@ -19,12 +19,11 @@ package org.yipuran.wicketcustom.stateless.behaviors;
 
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
-import org.apache.wicket.request.Url;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.util.lang.Args;
 import org.danekja.java.util.function.serializable.SerializableConsumer;
-import org.yipuran.wicketcustom.stateless.StatelessEncoder;
 
 /**
  * Stateless version of AjaxFormComponentUpdatingBehavior.
@@ -38,6 +37,10 @@ public abstract class StatelessAjaxFormComponentUpdatingBehavior
 
     private static final long serialVersionUID = -286307141298283926L;
 
+    private boolean batched;
+
+    private final CallbackUrlMemo callbackUrl = new CallbackUrlMemo();
+
     /**
      * @param event
      */
@@ -57,10 +60,51 @@ public abstract class StatelessAjaxFormComponentUpdatingBehavior
     @Override
     public CharSequence getCallbackUrl()
     {
-        final Url url = Url.parse(super.getCallbackUrl().toString());
-        final PageParameters params = getPageParameters();
+        return callbackUrl.get(getPageParameters(), super::getCallbackUrl);
+    }
+
+    @Override
+    protected void updateAjaxAttributes(final AjaxRequestAttributes attributes)
+    {
+        super.updateAjaxAttributes(attributes);
 
-        return StatelessEncoder.mergeParameters(url, params).toString();
+        if (batched)
+        {
+            StatelessAjaxBatchBehavior.enqueue(this, getComponent(), attributes);
+        }
+    }
+
+    /**
+     * Queues the events for the {@link StatelessAjaxBatchBehavior} of the page instead of
+     * sending a request per event. Without a batch behavior on the page every event is sent as usual.
+     *
+     * @param batched {@literal true} to batch the events
+     * @return this behavior
+     */
+    public StatelessAjaxFormComponentUpdatingBehavior setBatched(final boolean batched)
+    {
+        this.batched = batched;
+        return this;
+    }
+
+    public boolean isBatched()
+    {
+        return batched;
+    }
+
+    /**
+     * Handles an event dispatched by {@link StatelessAjaxBatchBehavior}.
+     */
+    void dispatch(final AjaxRequestTarget target)
+    {
+        onEvent(target);
+    }
+
+    @Override
+    public void detach(final Component component)
+    {
+        callbackUrl.clear();
+        super.detach(component);
     }
 
     protected PageParameters getPageParameters()
@@ -17,25 +17,91 @@
  */
 package org.yipuran.wicketcustom.stateless.behaviors;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes.Method;
+import org.apache.wicket.core.util.string.JavaScriptUtils;
 import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponent;
 import org.apache.wicket.markup.html.form.IFormSubmitter;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.StringValue;
+import org.apache.wicket.util.string.Strings;
+import org.apache.wicket.util.visit.IVisit;
 import org.danekja.java.util.function.serializable.SerializableConsumer;
+import org.yipuran.wicketcustom.stateless.StatelessSubmitRegistry;
 
 /**
  * Stateless version of AjaxFormSubmitBehavior.
+ * <p>
+ * With {@link #setSuppressDuplicates(boolean)} enabled each submission carries a token made of
+ * the form, the submitting behavior and a digest of the serialized form values, so that with
+ * {@link StatelessSubmitRegistry} installed double clicks on the same button of an unchanged form
+ * are answered with the response of the first submission instead of processing the form again.
+ * </p>
+ * <p>
+ * For large forms {@link #setDirtyFieldsOnly(boolean)} submits and processes only the fields
+ * changed since they were rendered.
+ * </p>
  */
 public class StatelessAjaxFormSubmitBehavior extends StatelessAjaxEventBehavior
 {
 
+	/** request parameter listing the input names of the fields sent in dirty fields mode */
+	public static final String DIRTY_PARAMETER = "_ydirty";
+
+	/**
+	 * the submission token: a random token generated once per form, followed by a 53 bit digest
+	 * of the submitting behavior and the serialized form values
+	 */
+	private static final String TOKEN_SCRIPT = "var f = Wicket.$(FORM_ID); if (!f) { return {}; }"
+		+ " if (!f.ysubToken) {"
+		+ " f.ysubToken = Array.prototype.map.call(window.crypto.getRandomValues(new Uint32Array(4)), function(n) { return n.toString(36); }).join('') + Date.now().toString(36); }"
+		+ " var d = SUBMITTER + '|' + Wicket.Form.serializeForm(f).map(function(p) { return p.name + '=' + p.value; }).join('&');"
+		+ " var h1 = 0xdeadbeef, h2 = 0x41c6ce57;"
+		+ " for (var i = 0; i < d.length; i++) { var ch = d.charCodeAt(i); h1 = Math.imul(h1 ^ ch, 2654435761); h2 = Math.imul(h2 ^ ch, 1597334677); }"
+		+ " h1 = Math.imul(h1 ^ (h1 >>> 16), 2246822507) ^ Math.imul(h2 ^ (h2 >>> 13), 3266489909);"
+		+ " h2 = Math.imul(h2 ^ (h2 >>> 16), 2246822507) ^ Math.imul(h1 ^ (h1 >>> 13), 3266489909);"
+		+ " return {'" + StatelessSubmitRegistry.PARAMETER + "': f.ysubToken + '-' + (h2 >>> 0).toString(36) + (h1 >>> 0).toString(36)};";
+
 	/** The default form processing flag. */
 	private boolean defaultFormProcessing = true;
 
+	/**
+	 * serializes only the fields whose value differs from the rendered one (hidden fields always)
+	 * together with the list of their names
+	 */
+	private static final String DIRTY_SCRIPT = "var f = Wicket.$(FORM_ID); if (!f) { return []; }"
+		+ " var fields = f.querySelectorAll('input,select,textarea'); var names = [];"
+		+ " Array.prototype.forEach.call(fields, function(el) {"
+		+ " if (!el.name || el.disabled || names.indexOf(el.name) >= 0) { return; }"
+		+ " var dirty; var type = (el.type || '').toLowerCase();"
+		+ " if (type === 'hidden') { dirty = true; }"
+		+ " else if (type === 'checkbox' || type === 'radio') { dirty = el.checked !== el.defaultChecked; }"
+		+ " else if (el.tagName === 'SELECT') { dirty = Array.prototype.some.call(el.options, function(o) { return o.selected !== o.defaultSelected; }); }"
+		+ " else if (type === 'submit' || type === 'button' || type === 'image' || type === 'reset' || type === 'file') { dirty = false; }"
+		+ " else { dirty = el.value !== el.defaultValue; }"
+		+ " if (dirty) { names.push(el.name); } });"
+		+ " var ep = [{name: '" + DIRTY_PARAMETER + "', value: ''}];"
+		+ " names.forEach(function(n) { ep.push({name: '" + DIRTY_PARAMETER + "', value: n}); });"
+		+ " Array.prototype.forEach.call(fields, function(el) {"
+		+ " if (names.indexOf(el.name) >= 0) { ep = ep.concat(Wicket.Form.serializeElement(el, false)); } });"
+		+ " return ep;";
+
+	/** The duplicate suppression flag. */
+	private boolean suppressDuplicates;
+
+	/** The dirty fields only flag. */
+	private boolean dirtyFieldsOnly;
+
 	/**
 	 * Instantiates a new stateless ajax form submit behavior.
 	 *
@@ -52,16 +118,32 @@ public class StatelessAjaxFormSubmitBehavior extends StatelessAjaxEventBehavior
 		return null;
 	}
 
+	@Override
+	boolean isPlainEvent()
+	{
+		return false;
+	}
+
 	@Override
 	protected void updateAjaxAttributes(AjaxRequestAttributes attributes)
 	{
 		super.updateAjaxAttributes(attributes);
 
 		Form<?> form = findForm();
-		attributes.setFormId(form.getMarkupId());
+		String formId = "'" + JavaScriptUtils.escapeQuotes(form.getMarkupId()) + "'";
+		boolean dirtyOnly = dirtyFieldsOnly && !form.getRootForm().isMultiPart();
+		if (dirtyOnly)
+		{
+			// the fields are sent by DIRTY_SCRIPT instead of serializing the whole form
+			attributes.getDynamicExtraParameters().add(DIRTY_SCRIPT.replace("FORM_ID", formId));
+		}
+		else
+		{
+			attributes.setFormId(form.getMarkupId());
+		}
 
 		String formMethod = form.getMarkupAttributes().getString("method");
-		if (formMethod == null || "POST".equalsIgnoreCase(formMethod))
+		if (dirtyOnly || formMethod == null || "POST".equalsIgnoreCase(formMethod))
 		{
 			attributes.setMethod(Method.POST);
 		}
@@ -73,6 +155,13 @@ public class StatelessAjaxFormSubmitBehavior extends StatelessAjaxEventBehavior
 		}
 
 		attributes.setPreventDefault(true);
+
+		if (suppressDuplicates)
+		{
+			String submitter = "'" + JavaScriptUtils.escapeQuotes(getComponent().getMarkupId() + "."
+				+ getComponent().getBehaviorId(this)) + "'";
+			attributes.getDynamicExtraParameters().add(TOKEN_SCRIPT.replace("FORM_ID", formId).replace("SUBMITTER", submitter));
+		}
 	}
 
 	/**
@@ -94,7 +183,88 @@ public class StatelessAjaxFormSubmitBehavior extends StatelessAjaxEventBehavior
 	@Override
 	protected void onEvent(AjaxRequestTarget target)
 	{
-		findForm().getRootForm().onFormSubmitted(new AjaxFormSubmitter(this, target));
+		Form<?> root = findForm().getRootForm();
+		List<StringValue> manifest = dirtyFieldsOnly
+			? root.getRequest().getPostParameters().getParameterValues(DIRTY_PARAMETER) : null;
+		if (manifest == null)
+		{
+			root.onFormSubmitted(new AjaxFormSubmitter(this, target));
+			return;
+		}
+		Set<String> dirty = new HashSet<>();
+		for (StringValue name : manifest)
+		{
+			if (!name.isEmpty())
+			{
+				dirty.add(name.toString());
+			}
+		}
+		// untouched fields are excluded from conversion, validation and model update for this submission,
+		// required fields without a value are always processed so that the manifest cannot bypass them
+		List<FormComponent<?>> untouched = new ArrayList<>();
+		root.visitChildren(FormComponent.class, (FormComponent<?> formComponent, IVisit<Void> visit) -> {
+			if (!isTouched(formComponent, dirty) && !isRequiredAndEmpty(formComponent) && formComponent.isVisibilityAllowed())
+			{
+				formComponent.setVisibilityAllowed(false);
+				untouched.add(formComponent);
+			}
+			visit.dontGoDeeper();
+		});
+		try
+		{
+			root.onFormSubmitted(new AjaxFormSubmitter(this, target));
+		}
+		finally
+		{
+			untouched.forEach(formComponent -> formComponent.setVisibilityAllowed(true));
+		}
+	}
+
+	/**
+	 * @return {@literal true} if the form component or one of its nested form components was sent
+	 */
+	private static boolean isTouched(FormComponent<?> formComponent, Set<String> dirty)
+	{
+		if (dirty.contains(formComponent.getInputName()))
+		{
+			return true;
+		}
+		if (formComponent instanceof MarkupContainer)
+		{
+			Boolean nested = ((MarkupContainer)formComponent).visitChildren(FormComponent.class,
+				(FormComponent<?> child, IVisit<Boolean> visit) -> {
+					if (dirty.contains(child.getInputName()))
+					{
+						visit.stop(true);
+					}
+				});
+			return nested != null;
+		}
+		return false;
+	}
+
+	/**
+	 * @return {@literal true} if the form component or one of its nested form components is
+	 *         required and has no value
+	 */
+	private static boolean isRequiredAndEmpty(FormComponent<?> formComponent)
+	{
+		if (formComponent.isRequired() && Strings.isEmpty(formComponent.getValue()))
+		{
+			return true;
+		}
+		if (formComponent instanceof MarkupContainer)
+		{
+			Boolean nested = ((MarkupContainer)formComponent).visitChildren(FormComponent.class,
+				(FormComponent<?> child, IVisit<Boolean> visit) -> {
+					if (child.isRequired() && Strings.isEmpty(child.getValue()))
+					{
+						visit.stop(true);
+					}
+				});
+			return nested != null;
+		}
+		return false;
 	}
 
 	/**
@@ -202,6 +372,64 @@ public class StatelessAjaxFormSubmitBehavior extends StatelessAjaxEventBehavior
 	{
 		this.defaultFormProcessing = defaultFormProcessing;
 	}
+	/**
+	 * Gets the duplicate suppression flag.
+	 *
+	 * @return {@literal true} if submissions carry a submission token
+	 */
+	public boolean getSuppressDuplicates()
+	{
+		return suppressDuplicates;
+	}
+
+	/**
+	 * Sets whether submissions carry a submission token, disabled by default.
+	 * The duplicates are suppressed only if {@link StatelessSubmitRegistry} is installed.
+	 * <p>
+	 * A submission is a duplicate of an earlier one if it is sent by the same behavior with the
+	 * same form values while the registry remembers the earlier token. Enable it only where
+	 * an intentional repeated submission of unchanged values within that time may be dropped.
+	 * </p>
+	 *
+	 * @param suppressDuplicates {@literal true} to answer duplicates with the first response
+	 * @return this behavior
+	 */
+	public StatelessAjaxFormSubmitBehavior setSuppressDuplicates(boolean suppressDuplicates)
+	{
+		this.suppressDuplicates = suppressDuplicates;
+		return this;
+	}
+
+	/**
+	 * Gets the dirty fields only flag.
+	 *
+	 * @return {@literal true} if only changed fields are submitted and processed
+	 */
+	public boolean getDirtyFieldsOnly()
+	{
+		return dirtyFieldsOnly;
+	}
+
+	/**
+	 * Submits and processes only the fields the user changed since they were rendered.
+	 * <p>
+	 * The browser compares every field with its rendered value and sends only the changed ones
+	 * (hidden fields always) with a list of their names in {@value #DIRTY_PARAMETER}. On the server
+	 * all other form components are left out of conversion, validation and model update, their
+	 * models keep the values the page was constructed with. Required form components without a
+	 * value are always processed, so they fail the required check unless they are sent.
+	 * Form validators depending on an untouched component are skipped. Multipart forms are always submitted completely.
+	 * </p>
+	 *
+	 * @param dirtyFieldsOnly {@literal true} to process only the changed fields
+	 * @return this behavior
+	 */
+	public StatelessAjaxFormSubmitBehavior setDirtyFieldsOnly(boolean dirtyFieldsOnly)
+	{
+		this.dirtyFieldsOnly = dirtyFieldsOnly;
+		return this;
+	}
+
 	/**
 	 * Creates an {@link StatelessAjaxFormSubmitBehavior} based on lambda expressions
 	 * @param eventName the event name
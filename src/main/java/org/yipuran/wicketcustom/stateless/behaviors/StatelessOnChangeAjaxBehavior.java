@@ -16,13 +16,18 @@
  */
 package org.yipuran.wicketcustom.stateless.behaviors;
 
+import java.time.Duration;
+
 import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxChannel;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.ajax.attributes.ThrottlingSettings;
 import org.apache.wicket.markup.html.form.TextArea;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.util.lang.Args;
 import org.danekja.java.util.function.serializable.SerializableConsumer;
+import org.yipuran.wicketcustom.stateless.StatelessSequenceGuard;
 
 /**
  * Stateless version of OnChangeAjaxBehavior.
@@ -33,6 +38,18 @@ import org.danekja.java.util.function.serializable.SerializableConsumer;
  * that is handled in the best way for the specific browser. For other form component types the
  * 'change' event is used.
  * </p>
+ * <p>
+ * Every event is a stateless request that reconstructs the page, so bursts of input events
+ * can be reduced with {@link #setDebounce(Duration)} or {@link #setThrottle(Duration)}.
+ * {@link #setDropStale(boolean)} queues the requests in a dropping ajax channel and numbers
+ * them, so that with {@link StatelessSequenceGuard} installed a request arriving after a newer one
+ * is answered empty before the page is reconstructed.
+ * </p>
+ * <pre>
+ * queue(new TextField&lt;String&gt;("word").add(StatelessOnChangeAjaxBehavior.onChange(t-&gt;{
+ *    t.add(result);
+ * }).setDebounce(Duration.ofMillis(300)).setDropStale(true)));
+ * </pre>
  *
  * @author Andrea Del Bene
  * Copyright © 2016 wicket-stuff
@@ -50,6 +67,17 @@ public class StatelessOnChangeAjaxBehavior extends StatelessAjaxFormComponentUpd
 
 	public static final String EVENT_CHANGE = "change";
 
+	/** numbers the requests per element as {@code <client token>-<sequence number>} */
+	private static final String SEQUENCE_SCRIPT = "var c = Wicket.$(attrs.c);"
+		+ " if (!c.ysqToken) { c.ysqToken = Math.random().toString(36).substring(2) + Date.now().toString(36); c.ysq = 0; }"
+		+ " c.ysq++; return {'" + StatelessSequenceGuard.PARAMETER + "': c.ysqToken + '-' + c.ysq};";
+
+	private Duration throttleDelay;
+
+	private boolean postponeTimerOnUpdate;
+
+	private boolean dropStale;
+
 	public StatelessOnChangeAjaxBehavior()
 	{
 		super(EVENT_NAME);
@@ -68,6 +96,56 @@ public class StatelessOnChangeAjaxBehavior extends StatelessAjaxFormComponentUpd
 		{
 			attributes.setEventNames(EVENT_CHANGE);
 		};
+
+		if (throttleDelay != null)
+		{
+			attributes.setThrottlingSettings(new ThrottlingSettings(throttleDelay, postponeTimerOnUpdate));
+		}
+		if (dropStale)
+		{
+			attributes.setChannel(new AjaxChannel(component.getMarkupId(), AjaxChannel.Type.DROP));
+			attributes.getDynamicExtraParameters().add(SEQUENCE_SCRIPT);
+		}
+	}
+
+	/**
+	 * Sends the request only after no event occurred for the given delay.
+	 *
+	 * @param delay the quiet period, {@code null} to disable
+	 * @return this behavior
+	 */
+	public StatelessOnChangeAjaxBehavior setDebounce(Duration delay)
+	{
+		throttleDelay = delay;
+		postponeTimerOnUpdate = true;
+		return this;
+	}
+
+	/**
+	 * Sends at most one request per the given delay.
+	 *
+	 * @param delay the minimal interval between requests, {@code null} to disable
+	 * @return this behavior
+	 */
+	public StatelessOnChangeAjaxBehavior setThrottle(Duration delay)
+	{
+		throttleDelay = delay;
+		postponeTimerOnUpdate = false;
+		return this;
+	}
+
+	/**
+	 * Drops outdated requests: on the client only the last queued request of the element
+	 * is sent, and on the server {@link StatelessSequenceGuard} (if installed) answers
+	 * requests older than an already accepted one without reconstructing the page.
+	 *
+	 * @param dropStale {@literal true} to drop outdated requests
+	 * @return this behavior
+	 */
+	public StatelessOnChangeAjaxBehavior setDropStale(boolean dropStale)
+	{
+		this.dropStale = dropStale;
+		return this;
 	}
 
 	@Override
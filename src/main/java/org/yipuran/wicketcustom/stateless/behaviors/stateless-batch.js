@@ -0,0 +1,34 @@
+/** stateless-batch.js */
+var yipuranStatelessBatch = (function(){
+	var queues = {};
+	var isField = function(el){
+		return el && (el.tagName==='INPUT' || el.tagName==='SELECT' || el.tagName==='TEXTAREA');
+	};
+	var flush = function(url){
+		var q = queues[url];
+		delete queues[url];
+		if (!q || q.events.length===0) return;
+		var ep = [{ name: '_ybatch', value: JSON.stringify(q.events) }];
+		q.elements.forEach(function(id){
+			var el = Wicket.$(id);
+			if (isField(el)){
+				ep = ep.concat(Wicket.Form.serializeElement(el, false));
+			}
+		});
+		Wicket.Ajax.post({ u: url, ep: ep });
+	};
+	/* queues the event instead of the ajax call and sends the queue after windowMillis; false cancels the single call */
+	var offer = function(attrs, url, path, behaviorId, windowMillis){
+		var q = queues[url];
+		if (!q){
+			q = queues[url] = { events: [], elements: [] };
+			setTimeout(function(){ flush(url); }, windowMillis);
+		}
+		q.events.push([path, behaviorId]);
+		if (attrs.c && q.elements.indexOf(attrs.c) < 0){
+			q.elements.push(attrs.c);
+		}
+		return false;
+	};
+	return { offer: offer, flush: flush };
+})();
@@ -0,0 +1,59 @@
+/*
+ * Stateless dialogs, rendered from the JSON payload of AbstractStatelessDialog#getShowScript.
+ */
+;(function (undefined) {
+	'use strict';
+
+	if (typeof(window.yipuranStatelessDialog) === 'object') {
+		return;
+	}
+
+	window.yipuranStatelessDialog = {
+		/**
+		 * @param id the markup id of the dialog element
+		 * @param p {m: message, c: box class, d: data, s: button classes, b: [[label, event]]}
+		 */
+		open: function (id, p) {
+			var el = Wicket.$(id);
+			if (!el) {
+				return;
+			}
+			yipuranStatelessDialog.close(id);
+			var overlay = document.createElement('div');
+			overlay.className = 'ydlg-overlay';
+			overlay.id = id + '_overlay';
+			var box = document.createElement('div');
+			box.className = 'ydlg-box ' + p.c;
+			var message = document.createElement('div');
+			message.className = 'ydlg-text';
+			message.innerHTML = p.m;
+			box.appendChild(message);
+			var buttons = document.createElement('div');
+			buttons.className = 'ydlg-buttons';
+			p.b.forEach(function (b) {
+				var button = document.createElement('button');
+				button.type = 'button';
+				button.className = p.s;
+				button.appendChild(document.createTextNode(b[0]));
+				button.onclick = function () {
+					yipuranStatelessDialog.close(id);
+					if (b[1]) {
+						el.ydlgData = p.d;
+						jQuery(el).trigger(b[1]);
+					}
+				};
+				buttons.appendChild(button);
+			});
+			box.appendChild(buttons);
+			overlay.appendChild(box);
+			document.body.appendChild(overlay);
+		},
+
+		close: function (id) {
+			var overlay = Wicket.$(id + '_overlay');
+			if (overlay) {
+				overlay.parentNode.removeChild(overlay);
+			}
+		}
+	};
+})();
@@ -0,0 +1,61 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.core.util.lang.WicketObjects;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CascadingDropDownChoiceTest{
+	private static final AtomicInteger LOADS = new AtomicInteger();
+
+	private WicketTester tester;
+
+	@BeforeEach
+	void setUp(){
+		tester = new WicketTester();
+		LOADS.set(0);
+	}
+	@AfterEach
+	void tearDown(){
+		tester.destroy();
+	}
+
+	static class Item implements ChoiceValue, Serializable{
+		private static final long serialVersionUID = 1L;
+		final String id;
+		Item(String id){
+			this.id = id;
+		}
+		@Override
+		public String getOptionValue(){
+			return id;
+		}
+	}
+
+	@Test
+	void childListsAreMemoizedButNotSerialized(){
+		Item p = new Item("p");
+		XDropDownChoice<Item> parent = new XDropDownChoice<Item>("parent", Model.of(p), Arrays.asList(p), e->e.id);
+		CascadingDropDownChoice<Item, Item> child = new CascadingDropDownChoice<Item, Item>("child", new Model<Item>(), parent
+			, e->{
+				LOADS.incrementAndGet();
+				return Arrays.asList(new Item(e.id + "1"));
+			}, e->e.id);
+		List<? extends Item> first = child.getChoices();
+		assertEquals(first, child.getChoices());
+		assertEquals(1, LOADS.get());
+
+		CascadingDropDownChoice<?, ?> copy = WicketObjects.cloneObject(child);
+		copy.getChoices();
+		assertEquals(2, LOADS.get());
+	}
+}
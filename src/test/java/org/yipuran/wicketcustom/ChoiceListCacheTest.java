@@ -0,0 +1,73 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ChoiceListCacheTest{
+	private WicketTester tester;
+
+	@BeforeEach
+	void setUp(){
+		tester = new WicketTester(new MockApplication());
+	}
+	@AfterEach
+	void tearDown(){
+		tester.destroy();
+	}
+
+	@Test
+	void loadsOncePerKey(){
+		AtomicInteger loads = new AtomicInteger();
+		ChoiceListCache cache = ChoiceListCache.install(tester.getApplication(), 10, Duration.ofMinutes(1))
+			.register("k", ()->Arrays.asList("v" + loads.incrementAndGet()));
+		assertEquals(Arrays.asList("v1"), cache.get("k"));
+		assertEquals(Arrays.asList("v1"), cache.get("k"));
+		cache.invalidate("k");
+		assertEquals(Arrays.asList("v2"), cache.get("k"));
+	}
+
+	@Test
+	void invalidateDuringLoadIsNotOverwritten() throws Exception{
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch invalidated = new CountDownLatch(1);
+		ChoiceListCache cache = ChoiceListCache.install(tester.getApplication(), 10, Duration.ofMinutes(1))
+			.register("k", ()->{
+				int n = loads.incrementAndGet();
+				if (n==1){
+					loading.countDown();
+					await(invalidated);
+				}
+				return Arrays.asList("v" + n);
+			});
+		Thread reader = new Thread(()->cache.get("k"));
+		reader.start();
+		await(loading);
+		cache.invalidate("k");
+		invalidated.countDown();
+		reader.join(5000);
+		List<String> list = cache.get("k");
+		// the load started before invalidate must not be kept
+		assertEquals(Arrays.asList("v2"), list);
+	}
+
+	private static void await(CountDownLatch latch){
+		try{
+			latch.await(5, TimeUnit.SECONDS);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.markup.html.form.IChoiceRenderer;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.util.ListModel;
+import org.junit.jupiter.api.Test;
+
+class ChoiceRenderTest{
+	static class Foo implements Serializable{
+		private static final long serialVersionUID = 1L;
+		final int val;
+		final String name;
+		Foo(int val, String name){
+			this.val = val;
+			this.name = name;
+		}
+	}
+
+	@Test
+	void indexedSameResultAsScan(){
+		Foo a = new Foo(1, "a"), b = new Foo(2, "b"), b2 = new Foo(2, "b2");
+		ListModel<Foo> model = new ListModel<>(Arrays.asList(a, b, b2));
+		IChoiceRenderer<Foo> scan = ChoiceRender.of(t->Integer.toString(t.val), t->t.name, (t, u)->u != null && u.equals(Integer.toString(t.val)));
+		IChoiceRenderer<Foo> indexed = ChoiceRender.ofIndexed(t->Integer.toString(t.val), t->t.name);
+		// １回目は走査、２回目以降はインデックスで解決する
+		for(int i=0; i < 3; i++){
+			for(String v : new String[]{ "1", "2", "9" }){
+				assertSame(scan.getObject(v, model), indexed.getObject(v, model));
+			}
+		}
+		assertNull(indexed.getObject(null, model));
+	}
+
+	@Test
+	void indexedVerifiesHitAfterInPlaceSet(){
+		Foo a = new Foo(1, "a"), b = new Foo(2, "b");
+		List<Foo> list = new ArrayList<>(Arrays.asList(a, b));
+		ListModel<Foo> model = new ListModel<>(list);
+		IChoiceRenderer<Foo> indexed = ChoiceRender.ofIndexed(t->Integer.toString(t.val), t->t.name);
+		indexed.getObject("2", model);
+		assertSame(b, indexed.getObject("2", model));
+		Foo c = new Foo(3, "c");
+		list.set(1, c);
+		assertNull(indexed.getObject("2", model));
+		assertSame(c, indexed.getObject("3", model));
+		assertSame(a, indexed.getObject("1", model));
+	}
+
+	@Test
+	void indexedWithNewListEveryCall(){
+		IChoiceRenderer<Foo> indexed = ChoiceRender.ofIndexed(t->Integer.toString(t.val), t->t.name);
+		IModel<List<Foo>> model = ()->Arrays.asList(new Foo(1, "a"), new Foo(2, "b"));
+		for(int i=0; i < 3; i++){
+			assertSame(2, indexed.getObject("2", model).val);
+			assertNull(indexed.getObject("9", model));
+		}
+	}
+
+	@Test
+	void indexedFallsBackToBiPredicate(){
+		Foo a = new Foo(1, "a"), b = new Foo(2, "b");
+		ListModel<Foo> model = new ListModel<>(Arrays.asList(a, b));
+		IChoiceRenderer<Foo> indexed = ChoiceRender.ofIndexed(t->Integer.toString(t.val), t->t.name, (t, u)->t.name.equals(u));
+		indexed.getObject("b", model);
+		assertSame(b, indexed.getObject("b", model));
+		assertNull(indexed.getObject("1", model));
+	}
+}
@@ -0,0 +1,45 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.model.util.ListModel;
+import org.junit.jupiter.api.Test;
+
+class EnumOrdinalChoiceRendererTest{
+	enum Color{
+		RED, GREEN, BLUE;
+	}
+
+	@Test
+	void resolvesOrdinalInList(){
+		ListModel<Color> model = new ListModel<>(Arrays.asList(Color.BLUE, Color.RED));
+		EnumOrdinalChoiceRenderer<Color> renderer = EnumOrdinalChoiceRenderer.of(Color.class, e->e.name().toLowerCase());
+		assertEquals("2", renderer.getIdValue(Color.BLUE, 0));
+		assertEquals("blue", renderer.getDisplayValue(Color.BLUE));
+		assertSame(Color.BLUE, renderer.getObject("2", model));
+		assertSame(Color.RED, renderer.getObject("0", model));
+		// 選択リストに含まれない、範囲外、数値でない
+		assertNull(renderer.getObject("1", model));
+		assertNull(renderer.getObject("3", model));
+		assertNull(renderer.getObject("-1", model));
+		assertNull(renderer.getObject("RED", model));
+	}
+
+	@Test
+	void rebuildsAfterInPlaceRewrite(){
+		List<Color> list = new ArrayList<>(Arrays.asList(Color.RED, Color.GREEN));
+		ListModel<Color> model = new ListModel<>(list);
+		EnumOrdinalChoiceRenderer<Color> renderer = new EnumOrdinalChoiceRenderer<>(Color.class);
+		assertSame(Color.GREEN, renderer.getObject("1", model));
+		list.set(1, Color.BLUE);
+		assertNull(renderer.getObject("1", model));
+		assertSame(Color.BLUE, renderer.getObject("2", model));
+		assertEquals("BLUE", renderer.getDisplayValue(Color.BLUE));
+	}
+}
@@ -0,0 +1,50 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.model.util.ListModel;
+import org.junit.jupiter.api.Test;
+
+class IndexedChoiceRendererTest{
+	static class Item implements ChoiceValue{
+		final String id;
+		Item(String id){
+			this.id = id;
+		}
+		@Override
+		public String getOptionValue(){
+			return id;
+		}
+	}
+
+	@Test
+	void sameResultAsScan(){
+		Item a = new Item("a"), b = new Item("b"), b2 = new Item("b");
+		ListModel<Item> model = new ListModel<>(Arrays.asList(a, b, b2));
+		IIChoiceRenderer<Item> scan = e->e.id;
+		IndexedChoiceRenderer<Item> indexed = IndexedChoiceRenderer.of(e->e.id);
+		for(String v : new String[]{ "a", "b", "x" }){
+			assertSame(scan.getObject(v, model), indexed.getObject(v, model));
+		}
+		assertNull(indexed.getObject(null, model));
+	}
+
+	@Test
+	void rebuildsWhenListChanges(){
+		IndexedChoiceRenderer<Item> indexed = IndexedChoiceRenderer.of(e->e.id);
+		List<Item> list = new ArrayList<>(Arrays.asList(new Item("a")));
+		ListModel<Item> model = new ListModel<>(list);
+		assertNull(indexed.getObject("c", model));
+		Item c = new Item("c");
+		list.add(c);
+		assertSame(c, indexed.getObject("c", model));
+		Item d = new Item("d");
+		model.setObject(Arrays.asList(d));
+		assertSame(d, indexed.getObject("d", model));
+	}
+}
@@ -0,0 +1,49 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixChoiceIndexTest{
+	static class Item implements ChoiceValue{
+		final String id;
+		final String name;
+		Item(String id, String name){
+			this.id = id;
+			this.name = name;
+		}
+		@Override
+		public String getOptionValue(){
+			return id;
+		}
+	}
+
+	@Test
+	void searchByDisplayAndOptionValue(){
+		List<Item> list = Arrays.asList(new Item("10", "Tokyo"), new Item("20", "Kyoto"), new Item("11", "ｔｏｋｕｓｈｉｍａ"));
+		PrefixChoiceIndex<Item> index = PrefixChoiceIndex.of(list, e->e.name);
+		assertEquals(Arrays.asList("11", "10"), ids(index.search("TOK", 0, 10)));
+		assertEquals(Arrays.asList("10", "11"), ids(index.search("1", 0, 10)));
+		assertEquals(Arrays.asList("11"), ids(index.search("1", 1, 10)));
+		assertEquals(Arrays.asList("20"), ids(index.search("ky", 0, 10)));
+	}
+	@Test
+	void topNIsLimited(){
+		List<Item> list = new ArrayList<>();
+		for(int i=0; i < 1000; i++){
+			list.add(new Item(Integer.toString(i), "name" + i));
+		}
+		PrefixChoiceIndex<Item> index = PrefixChoiceIndex.of(list, e->e.name);
+		assertEquals(Arrays.asList("1", "10", "100"), ids(index.search("name1", 0, 3)));
+		assertEquals(Arrays.asList("123"), ids(index.search("name123", 0, 3)));
+	}
+
+	private static List<String> ids(List<Item> list){
+		return list.stream().map(e->e.id).collect(Collectors.toList());
+	}
+}
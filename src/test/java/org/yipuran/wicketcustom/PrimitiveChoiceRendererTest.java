@@ -0,0 +1,52 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.model.util.ListModel;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveChoiceRendererTest{
+	@Test
+	void intResolvesSubmittedValue(){
+		List<Integer> list = new ArrayList<>(Arrays.asList(3, 1, 4000, 1));
+		ListModel<Integer> model = new ListModel<>(list);
+		IntChoiceRenderer renderer = new IntChoiceRenderer();
+		assertSame(list.get(1), renderer.getObject("1", model));
+		assertSame(list.get(2), renderer.getObject("4000", model));
+		assertNull(renderer.getObject("2", model));
+		assertNull(renderer.getObject("x", model));
+		assertNull(renderer.getObject("", model));
+		assertNull(renderer.getObject(null, model));
+		assertEquals("4000", renderer.getIdValue(4000, 2));
+		assertEquals("-5", renderer.getIdValue(-5, 9));
+	}
+
+	@Test
+	void longResolvesSubmittedValue(){
+		ListModel<Long> model = new ListModel<>(Arrays.asList(Long.MAX_VALUE, -1L));
+		LongChoiceRenderer renderer = new LongChoiceRenderer();
+		assertEquals(Long.MAX_VALUE, renderer.getObject(Long.toString(Long.MAX_VALUE), model));
+		assertEquals(-1L, renderer.getObject("-1", model));
+		assertNull(renderer.getObject("0", model));
+		assertEquals(Long.toString(Long.MAX_VALUE), renderer.getIdValue(Long.MAX_VALUE, 0));
+	}
+
+	@Test
+	void rebuildsAfterInPlaceRewrite(){
+		List<Integer> list = new ArrayList<>(Arrays.asList(1, 2, 3));
+		ListModel<Integer> model = new ListModel<>(list);
+		IntChoiceRenderer renderer = new IntChoiceRenderer();
+		assertEquals(2, renderer.getObject("2", model));
+		// 同一サイズのまま新しいキーに書き換え
+		list.set(1, 7);
+		assertEquals(7, renderer.getObject("7", model));
+		assertNull(renderer.getObject("2", model));
+		assertEquals("7", renderer.getIdValue(7, 1));
+	}
+}
@@ -0,0 +1,115 @@
+package org.yipuran.wicketcustom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class XDropDownChoiceTest{
+	private WicketTester tester;
+
+	@BeforeEach
+	void setUp(){
+		tester = new WicketTester();
+		OptionMarkupCache.get().clear();
+	}
+	@AfterEach
+	void tearDown(){
+		tester.destroy();
+	}
+
+	static class Item implements ChoiceValue, Serializable{
+		private static final long serialVersionUID = 1L;
+		final String id;
+		final String name;
+		Item(String id, String name){
+			this.id = id;
+			this.name = name;
+		}
+		@Override
+		public String getOptionValue(){
+			return id;
+		}
+	}
+
+	static final List<Item> ITEMS = Arrays.asList(new Item("1", "one x value=\"2\">"), new Item("2", "two"), new Item("3", "three"));
+
+	public static class TestPage extends WebPage implements IMarkupResourceStreamProvider{
+		private static final long serialVersionUID = 1L;
+		static String disabledId;
+		public TestPage(){
+			XDropDownChoice<Item> names = new XDropDownChoice<Item>("names", Model.of(ITEMS.get(1)), ITEMS, e->e.name){
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean isDisabled(Item object, int index, String selected){
+					return object.id.equals(disabledId);
+				}
+			};
+			names.setEscapeModelStrings(false);
+			add(names.setOptionCacheKey("items", "name"));
+			add(new XDropDownChoice<Item>("ids", Model.of(ITEMS.get(2)), ITEMS, e->"#" + e.id).setOptionCacheKey("items", "id"));
+		}
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass){
+			return new StringResourceStream("<html><body><select wicket:id=\"names\"></select><select wicket:id=\"ids\"></select></body></html>");
+		}
+	}
+
+	@Test
+	void rendererKeySeparatesDisplayFunctions(){
+		TestPage.disabledId = null;
+		tester.startPage(TestPage.class);
+		String html = tester.getLastResponseAsString();
+		assertTrue(html.contains(">two</option>"), html);
+		assertTrue(html.contains(">#2</option>"), html);
+		assertTrue(html.contains("<option selected=\"selected\" value=\"3\">#3</option>"), html);
+
+		// 描画結果キャッシュから描画しても、表示方法毎に異なる
+		tester.startPage(TestPage.class);
+		html = tester.getLastResponseAsString();
+		assertTrue(html.contains(">two</option>"), html);
+		assertTrue(html.contains(">#2</option>"), html);
+	}
+
+	@Test
+	void selectedIsInsertedAtOptionNotDisplayText(){
+		TestPage.disabledId = null;
+		tester.startPage(TestPage.class);
+		tester.startPage(TestPage.class);
+		String html = tester.getLastResponseAsString();
+		assertTrue(html.contains("<option value=\"1\">one x value=\"2\"></option>"), html);
+		assertTrue(html.contains("<option selected=\"selected\" value=\"2\">two</option>"), html);
+	}
+
+	@Test
+	void disabledIsEvaluatedPerRender(){
+		TestPage.disabledId = "3";
+		tester.startPage(TestPage.class);
+		assertTrue(tester.getLastResponseAsString().contains("<option disabled=\"disabled\" value=\"3\">three</option>"));
+		TestPage.disabledId = null;
+		tester.startPage(TestPage.class);
+		String html = tester.getLastResponseAsString();
+		assertFalse(html.contains("disabled=\"disabled\""), html);
+		assertTrue(html.contains("<option value=\"3\">three</option>"), html);
+	}
+
+	@Test
+	void rendererKeyIsRequired(){
+		XDropDownChoice<Item> choice = new XDropDownChoice<Item>("c", ITEMS, e->e.name);
+		assertThrows(IllegalArgumentException.class, ()->choice.setOptionCacheKey("items", null));
+	}
+}
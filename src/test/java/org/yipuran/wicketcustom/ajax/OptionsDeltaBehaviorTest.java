@@ -0,0 +1,117 @@
+package org.yipuran.wicketcustom.ajax;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ajax.AjaxEventBehavior;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.form.ChoiceRenderer;
+import org.apache.wicket.markup.html.form.DropDownChoice;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OptionsDeltaBehaviorTest{
+	private WicketTester tester;
+
+	@BeforeEach
+	void setUp(){
+		tester = new WicketTester();
+	}
+	@AfterEach
+	void tearDown(){
+		tester.destroy();
+	}
+
+	@Test
+	void relabelWithEqualHashCodeIsSent(){
+		// "Aa" and "BB" have the same String.hashCode()
+		TestPage page = tester.startPage(new TestPage(new ArrayList<>(Arrays.asList("Aa", "x"))));
+		page.labels.set(0, "BB");
+		tester.executeAjaxEvent("refresh", "click");
+		String response = tester.getLastResponseAsString();
+		assertTrue(response.contains("yipuranOptionsDelta.apply"), response);
+		assertTrue(response.contains("\"BB\""), response);
+	}
+
+	@Test
+	void addedAndRemovedOptionsAreSentAsDelta(){
+		TestPage page = tester.startPage(new TestPage(new ArrayList<>(Arrays.asList("a", "b", "c"))));
+		page.choices.remove(Integer.valueOf(0));
+		page.choices.add(2);
+		tester.executeAjaxEvent("refresh", "click");
+		String response = tester.getLastResponseAsString();
+		assertTrue(response.contains("yipuranOptionsDelta.apply"), response);
+		assertTrue(response.contains("\"r\":[\"0\"]"), response);
+		assertTrue(response.contains("\"a\":[[1,\"2\",\"c\"]]"), response);
+		assertFalse(response.contains("\"u\":"), response);
+		assertFalse(response.contains("<select"), response);
+	}
+
+	@Test
+	void nullOptionChangeSendsWholeSelect(){
+		// 未選択なので Choose One が表示されている
+		TestPage page = tester.startPage(new TestPage(new ArrayList<>(Arrays.asList("a", "b"))));
+		assertTrue(tester.getLastResponseAsString().contains("value=\"\""));
+		page.model.setObject(1);
+		tester.executeAjaxEvent("refresh", "click");
+		String response = tester.getLastResponseAsString();
+		assertFalse(response.contains("yipuranOptionsDelta.apply"), response);
+		assertTrue(response.contains("<select"), response);
+		assertFalse(response.contains("value=\"\""), response);
+
+		// 選択中のまま変わらなければ差分
+		tester.executeAjaxEvent("refresh", "click");
+		assertTrue(tester.getLastResponseAsString().contains("yipuranOptionsDelta.apply"));
+
+		// 未選択に戻ると Choose One が再表示される
+		page.model.setObject(null);
+		tester.executeAjaxEvent("refresh", "click");
+		response = tester.getLastResponseAsString();
+		assertFalse(response.contains("yipuranOptionsDelta.apply"), response);
+		assertTrue(response.contains("value=\"\""), response);
+	}
+
+	public static class TestPage extends WebPage implements IMarkupResourceStreamProvider{
+		private static final long serialVersionUID = 1L;
+		final List<String> labels;
+		final List<Integer> choices = new ArrayList<>();
+		final Model<Integer> model = new Model<>();
+
+		TestPage(List<String> labels){
+			this.labels = labels;
+			choices.add(0);
+			choices.add(1);
+			OptionsDeltaBehavior delta = new OptionsDeltaBehavior();
+			DropDownChoice<Integer> choice = new DropDownChoice<>("choice", model, choices,
+				new ChoiceRenderer<Integer>(){
+					private static final long serialVersionUID = 1L;
+					@Override
+					public Object getDisplayValue(Integer i){
+						return TestPage.this.labels.get(i);
+					}
+					@Override
+					public String getIdValue(Integer i, int index){
+						return i.toString();
+					}
+				});
+			add(choice.add(delta));
+			add(new WebMarkupContainer("refresh").add(AjaxEventBehavior.onEvent("click", delta::update)));
+		}
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass){
+			return new StringResourceStream("<html><body><select wicket:id=\"choice\"></select><a wicket:id=\"refresh\">r</a></body></html>");
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.yipuran.wicketcustom.ajax;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
+import org.apache.wicket.extensions.markup.html.tabs.AbstractTab;
+import org.apache.wicket.extensions.markup.html.tabs.ITab;
+import org.apache.wicket.extensions.markup.html.tabs.TabbedPanel;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.panel.Fragment;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class YAjaxTabbedPanelTest{
+	private WicketTester tester;
+
+	@BeforeEach
+	void setUp(){
+		tester = new WicketTester();
+	}
+	@AfterEach
+	void tearDown(){
+		tester.destroy();
+	}
+
+	@Test
+	void nonAjaxSubmitFollowsClientSideTab(){
+		TestPage page = tester.startPage(new TestPage(8));
+		assertTrue(tester.getLastResponseAsString().contains("\"f\":true"), tester.getLastResponseAsString());
+		tester.executeAjaxEvent("form:tabs:tabs-container:tabs:1:link", "click");
+		assertEquals(1, page.tabs.getSelectedTab());
+
+		// クライアントでタブ 0 に戻して、Ajax でない submit
+		tester.getRequest().getPostParameters().setParameterValue("_ytab", page.tabs.getMarkupId() + ":0");
+		tester.getRequest().getPostParameters().setParameterValue("tabs:panel:field", "new");
+		tester.submitForm("form");
+
+		assertEquals(0, page.tabs.getSelectedTab());
+		assertFalse(page.errors);
+		assertEquals("new", page.values[0].getObject());
+		assertEquals("v1", page.values[1].getObject());
+	}
+	@Test
+	void cachedPanelsAreCapped(){
+		TestPage page = tester.startPage(new TestPage(1));
+		tester.executeAjaxEvent("form:tabs:tabs-container:tabs:1:link", "click");
+		assertTrue(tester.getLastResponseAsString().contains("yipuranTabCache.dirty('" + page.tabs.getMarkupId() + "', 0);"),
+			tester.getLastResponseAsString());
+	}
+	@Test
+	void syncedTabRendersCachedPanel(){
+		TestPage page = tester.startPage(new TestPage(8));
+		Component panel0 = page.tabs.get(TabbedPanel.TAB_PANEL_ID);
+		tester.executeAjaxEvent("form:tabs:tabs-container:tabs:1:link", "click");
+		assertEquals(1, page.tabs.getSelectedTab());
+
+		tester.getRequest().getPostParameters().setParameterValue("_ytab", page.tabs.getMarkupId() + ":0");
+		tester.submitForm("form");
+
+		assertEquals(0, page.tabs.getSelectedTab());
+		assertSame(panel0, page.tabs.get(TabbedPanel.TAB_PANEL_ID));
+		assertTrue(tester.getLastResponseAsString().contains("id=\"" + panel0.getMarkupId() + "\""), tester.getLastResponseAsString());
+	}
+	@Test
+	void prefetchedTabKeepsPanelInstances(){
+		TestPage page = tester.startPage(new TestPage(8));
+		Component panel0 = page.tabs.get(TabbedPanel.TAB_PANEL_ID);
+
+		tester.getRequest().getPostParameters().setParameterValue("_ytabi", "1");
+		tester.executeBehavior(page.tabs.getBehaviors(AbstractDefaultAjaxBehavior.class).get(0));
+		assertEquals(0, page.tabs.getSelectedTab());
+		assertSame(panel0, page.tabs.get(TabbedPanel.TAB_PANEL_ID));
+
+		// 先読みした Panel は次の表示で使われる
+		String prefetched = tester.getLastResponse().getDocument();
+		tester.startPage(page);
+		assertSame(panel0, page.tabs.get(TabbedPanel.TAB_PANEL_ID));
+		tester.executeAjaxEvent("form:tabs:tabs-container:tabs:1:link", "click");
+		Component panel1 = page.tabs.get(TabbedPanel.TAB_PANEL_ID);
+		assertTrue(prefetched.contains("yipuranTabCache.prefetched('" + page.tabs.getMarkupId() + "', 1, '" + panel1.getMarkupId() + "');"), prefetched);
+		tester.startPage(page);
+		assertSame(panel1, page.tabs.get(TabbedPanel.TAB_PANEL_ID));
+	}
+
+	public static class TestPage extends WebPage implements IMarkupResourceStreamProvider{
+		private static final long serialVersionUID = 1L;
+		final YAjaxTabbedPanel<ITab> tabs;
+		@SuppressWarnings("unchecked")
+		final Model<String>[] values = new Model[]{ Model.of("v0"), Model.of("v1") };
+		boolean errors;
+
+		TestPage(int maxCachedTabs){
+			Form<Void> form = new Form<Void>("form"){
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected void onError(){
+					errors = true;
+				}
+			};
+			add(form);
+			List<ITab> list = new ArrayList<>();
+			list.add(tab(0));
+			list.add(tab(1));
+			tabs = new YAjaxTabbedPanel<>("tabs", list).setMarkupCache(true).setMaxCachedTabs(maxCachedTabs);
+			form.add(tabs);
+		}
+		private ITab tab(int index){
+			return new AbstractTab(Model.of("tab" + index)){
+				private static final long serialVersionUID = 1L;
+				@Override
+				public WebMarkupContainer getPanel(String panelId){
+					Fragment fragment = new Fragment(panelId, "content", TestPage.this);
+					fragment.add(new TextField<String>("field", values[index]).setRequired(true));
+					return fragment;
+				}
+			};
+		}
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass){
+			return new StringResourceStream("<html><body><form wicket:id=\"form\"><div wicket:id=\"tabs\"></div></form>"
+				+ "<wicket:fragment wicket:id=\"content\"><input type=\"text\" wicket:id=\"field\"/></wicket:fragment></body></html>");
+		}
+	}
+}
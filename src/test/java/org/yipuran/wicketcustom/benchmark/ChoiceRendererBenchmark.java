@@ -0,0 +1,77 @@
+package org.yipuran.wicketcustom.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.util.ListModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yipuran.wicketcustom.ChoiceValue;
+import org.yipuran.wicketcustom.IIChoiceRenderer;
+import org.yipuran.wicketcustom.IndexedChoiceRenderer;
+
+/**
+ * IIChoiceRenderer（リスト走査）と IndexedChoiceRenderer の getObject 比較.
+ * <PRE>
+ * 選択リスト中央の要素を解決する。IndexedChoiceRenderer はインデックス作成済みの状態で計測する。
+ * mvn test-compile の後、test classpath で org.openjdk.jmh.Main ChoiceRendererBenchmark を実行する。
+ * </PRE>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChoiceRendererBenchmark{
+	@Param({"100", "10000", "100000"})
+	public int size;
+
+	private IModel<List<Item>> model;
+	private String value;
+	private final IIChoiceRenderer<Item> scan = e->e.name;
+	private final IndexedChoiceRenderer<Item> indexed = IndexedChoiceRenderer.of(e->e.name);
+
+	public static class Item implements ChoiceValue{
+		private final String id;
+		private final String name;
+		Item(int i){
+			id = Integer.toString(i);
+			name = "name" + i;
+		}
+		@Override
+		public String getOptionValue(){
+			return id;
+		}
+	}
+
+	@Setup
+	public void setup(){
+		List<Item> list = new ArrayList<>(size);
+		for(int i=0; i < size; i++){
+			list.add(new Item(i));
+		}
+		model = new ListModel<>(list);
+		value = Integer.toString(size / 2);
+		indexed.getObject(value, model);
+	}
+	@Benchmark
+	public Item scan(){
+		return scan.getObject(value, model);
+	}
+	@Benchmark
+	public Item indexed(){
+		return indexed.getObject(value, model);
+	}
+}
@@ -0,0 +1,86 @@
+package org.yipuran.wicketcustom.benchmark;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yipuran.wicketcustom.ChoiceValue;
+import org.yipuran.wicketcustom.PrefixChoiceIndex;
+
+/**
+ * 選択リストの stream 走査と PrefixChoiceIndex の前方一致検索（上位 10 件）比較.
+ * <PRE>
+ * term は一致が多い "name1" と、一致が少ない "name1234" で計測する。
+ * 走査側も PrefixChoiceIndex と同じく NFKC 正規化、小文字で比較する。
+ * mvn test-compile の後、test classpath で org.openjdk.jmh.Main PrefixChoiceIndexBenchmark を実行する。
+ * </PRE>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixChoiceIndexBenchmark{
+	private static final int LIMIT = 10;
+
+	@Param({"1000", "100000"})
+	public int size;
+	@Param({"name1", "name1234"})
+	public String term;
+
+	private List<Item> list;
+	private PrefixChoiceIndex<Item> index;
+
+	public static class Item implements ChoiceValue{
+		private final String id;
+		private final String name;
+		Item(int i){
+			id = Integer.toString(i);
+			name = "name" + i;
+		}
+		@Override
+		public String getOptionValue(){
+			return id;
+		}
+	}
+
+	@Setup
+	public void setup(){
+		list = new ArrayList<>(size);
+		for(int i=0; i < size; i++){
+			list.add(new Item(i));
+		}
+		index = PrefixChoiceIndex.of(list, e->e.name);
+	}
+	@Benchmark
+	public List<Item> stream(){
+		String prefix = normalize(term);
+		return list.stream()
+			.filter(e->normalize(e.id).startsWith(prefix) || normalize(e.name).startsWith(prefix))
+			.limit(LIMIT)
+			.collect(Collectors.toList());
+	}
+	@Benchmark
+	public List<Item> indexed(){
+		return index.search(term, 0, LIMIT);
+	}
+
+	private static String normalize(String s){
+		return Normalizer.normalize(s, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,81 @@
+package org.yipuran.wicketcustom.benchmark;
+
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.parameter.INamedParameters;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.encoding.UrlEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yipuran.wicketcustom.stateless.StatelessEncoder;
+
+/**
+ * StatelessEncoder.mergeParameters と変更前の実装（toString → parse、全キー値を UrlEncoder）の比較.
+ * <PRE>
+ * 確保量は -prof gc（gc.alloc.rate.norm）で計測する。
+ * mvn test-compile の後、test classpath で org.openjdk.jmh.Main StatelessEncoderBenchmark -prof gc を実行する。
+ * </PRE>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatelessEncoderBenchmark{
+	private Url url;
+	private PageParameters params;
+
+	@Setup
+	public void setup(){
+		url = Url.parse("wicket/bookmarkable/org.example.SearchPage?0-1.0-form-submit&page=2&sort=name");
+		params = new PageParameters()
+			.set("page", 3)
+			.set("sort", "code")
+			.add("filter", "open")
+			.add("filter", "closed")
+			.set("q", "東京 駅");
+	}
+	@Benchmark
+	public Url merge(){
+		return StatelessEncoder.mergeParameters(url, params);
+	}
+	@Benchmark
+	public Url legacy(){
+		return legacyMergeParameters(url, params);
+	}
+
+	/** 変更前の mergeParameters（indexed パラメータの処理は省略） */
+	public static Url legacyMergeParameters(Url url, PageParameters params){
+		if (params==null) return url;
+		Charset charset = url.getCharset();
+		Url mergedUrl = Url.parse(url.toString(), charset);
+		UrlEncoder urlEncoder = UrlEncoder.QUERY_INSTANCE;
+		Set<String> setParameters = new HashSet<String>();
+		List<INamedParameters.NamedPair> named = params.getAllNamed();
+		for(INamedParameters.NamedPair pair : named){
+			String key = urlEncoder.encode(pair.getKey(), charset);
+			String value = urlEncoder.encode(pair.getValue(), charset);
+			if (setParameters.contains(key)){
+				mergedUrl.addQueryParameter(key, value);
+			}else{
+				mergedUrl.setQueryParameter(key, value);
+				setParameters.add(key);
+			}
+		}
+		return mergedUrl;
+	}
+}
@@ -0,0 +1,110 @@
+package org.yipuran.wicketcustom.stateless;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.ClickLink;
+import org.yipuran.wicketcustom.ajax.AJAXDownload;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+
+class StatelessAuditTest
+{
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void reportsStatefulComponentsAndBehaviors()
+    {
+        tester.startPage(StatefulPage.class);
+        StatelessAudit.Report report = StatelessAudit.audit(tester.getLastRenderedPage());
+
+        assertFalse(report.isStateless());
+        assertEquals(StatefulPage.class.getName(), report.getPageClass());
+        assertTrue(report.getPageSize() > 0);
+        List<StatelessAudit.Finding> findings = report.getFindings();
+        assertEquals(2, findings.size(), report.toString());
+
+        StatelessAudit.Finding link = findings.get(0);
+        assertEquals("link", link.getPath());
+        assertFalse(link.isBehavior());
+        assertTrue(link.getSerializedSize() > 0);
+        assertTrue(link.getAlternative().contains("StatelessLink"), link.getAlternative());
+
+        StatelessAudit.Finding download = findings.get(1);
+        assertEquals("download", download.getPath());
+        assertTrue(download.isBehavior());
+        assertTrue(download.getSerializedSize() > 0);
+        assertEquals("StatelessAJAXDownload", download.getAlternative());
+
+        assertThrows(AssertionError.class, () -> StatelessAudit.assertStateless(tester.getLastRenderedPage()));
+    }
+
+    @Test
+    void statelessPagePasses()
+    {
+        tester.startPage(StatelessPage.class);
+        StatelessAudit.assertStateless(tester.getLastRenderedPage());
+        assertTrue(StatelessAudit.audit(tester.getLastRenderedPage()).isStateless());
+    }
+
+    public static class StatefulPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public StatefulPage()
+        {
+            add(ClickLink.bind("link", id -> {
+            }));
+            add(new WebMarkupContainer("download").add(AJAXDownload.of(out -> {
+            }, () -> "text/plain", () -> "a.txt")));
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><a wicket:id=\"link\">l</a><div wicket:id=\"download\"></div></body></html>");
+        }
+    }
+
+    public static class StatelessPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public StatelessPage()
+        {
+            add(new WebMarkupContainer("link").add(StatelessAjaxEventBehavior.onEvent("click", t -> {
+            })));
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><a wicket:id=\"link\">l</a></body></html>");
+        }
+    }
+}
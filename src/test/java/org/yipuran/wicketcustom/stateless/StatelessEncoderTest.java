@@ -0,0 +1,34 @@
+package org.yipuran.wicketcustom.stateless;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.benchmark.StatelessEncoderBenchmark;
+
+class StatelessEncoderTest
+{
+    @Test
+    void sameUrlAsLegacyMerge()
+    {
+        Url url = Url.parse("wicket/bookmarkable/org.example.SearchPage?0-1.0-form-submit&page=2&sort=name");
+        PageParameters params = new PageParameters()
+            .set("page", 3)
+            .add("filter", "open")
+            .add("filter", "closed")
+            .set("q", "東京 駅&x=1");
+
+        assertEquals(StatelessEncoderBenchmark.legacyMergeParameters(url, params).toString(),
+            StatelessEncoder.mergeParameters(url, params).toString());
+    }
+
+    @Test
+    void emptyParametersReturnUrl()
+    {
+        Url url = Url.parse("a/b?c=d");
+
+        assertSame(url, StatelessEncoder.mergeParameters(url, new PageParameters()));
+    }
+}
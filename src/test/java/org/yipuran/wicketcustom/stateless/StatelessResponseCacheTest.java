@@ -0,0 +1,99 @@
+package org.yipuran.wicketcustom.stateless;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+
+class StatelessResponseCacheTest
+{
+    static final AtomicInteger EVENTS = new AtomicInteger();
+
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+        EVENTS.set(0);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void repeatedCallbackIsAnsweredFromCache()
+    {
+        StatelessResponseCache.install(tester.getApplication());
+
+        String first = click();
+        assertTrue(first.contains("id=\"result"), first);
+        assertNull(tester.getLastResponse().getHeader("ETag"));
+
+        assertEquals(first, click());
+        assertEquals(1, EVENTS.get());
+    }
+
+    @Test
+    void cacheableSingleFlightResponseIsWrittenAndCached()
+    {
+        StatelessResponseCache.install(tester.getApplication());
+        StatelessSingleFlight.install(tester.getApplication());
+
+        String first = click();
+        assertTrue(first.contains("id=\"result"), first);
+
+        assertEquals(first, click());
+        assertEquals(1, EVENTS.get());
+    }
+
+    private String click()
+    {
+        tester.startPage(TestPage.class);
+        tester.getRequest().setMethod("GET");
+        tester.getRequest().setParameter(StatelessSingleFlight.PARAMETER, "1");
+        tester.executeAjaxEvent("link", "click");
+        return tester.getLastResponseAsString();
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestPage()
+        {
+            Label result = new Label("result", IModel.of(() -> "events " + EVENTS.get()));
+            result.setOutputMarkupId(true);
+            add(result);
+            add(new WebMarkupContainer("link").add(StatelessAjaxEventBehavior.onEvent("click", t -> {
+                EVENTS.incrementAndGet();
+                t.add(result);
+            }).setCacheable(Duration.ofMinutes(1)).setSingleFlight(true)));
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><a wicket:id=\"link\">l</a><span wicket:id=\"result\"></span></body></html>");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.yipuran.wicketcustom.stateless;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessOnChangeAjaxBehavior;
+
+class StatelessSequenceGuardTest
+{
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+        StatelessSequenceGuard.install(tester.getApplication());
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void acceptedRequestStillUpdatesComponents()
+    {
+        tester.startPage(TestPage.class);
+        assertTrue(tester.getLastRenderedPage().isPageStateless());
+
+        tester.getRequest().setParameter(StatelessSequenceGuard.PARAMETER, "client-2");
+        tester.executeAjaxEvent("word", "change");
+        assertTrue(tester.getLastResponseAsString().contains("id=\"result"), tester.getLastResponseAsString());
+
+        tester.getRequest().setParameter(StatelessSequenceGuard.PARAMETER, "client-1");
+        tester.executeAjaxEvent("word", "change");
+        assertFalse(tester.getLastResponseAsString().contains("<component"), tester.getLastResponseAsString());
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestPage()
+        {
+            Label result = new Label("result", "r");
+            result.setOutputMarkupId(true);
+            add(result);
+            add(new TextField<String>("word", new Model<String>()).add(StatelessOnChangeAjaxBehavior.onChange(t -> t.add(result))
+                .setDropStale(true)));
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><form><input type=\"text\" wicket:id=\"word\"/></form><span wicket:id=\"result\"></span></body></html>");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.yipuran.wicketcustom.stateless;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+
+class StatelessSubmitRegistryTest
+{
+    static final AtomicInteger EVENTS = new AtomicInteger();
+
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+        EVENTS.set(0);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void tokenSharesTheCaptureWithSingleFlight()
+    {
+        StatelessSubmitRegistry.install(tester.getApplication());
+        StatelessSingleFlight.install(tester.getApplication());
+
+        String first = click("0123456789abcdefghij-1");
+        assertTrue(first.contains("id=\"result"), first);
+        assertTrue(first.contains("events 1"), first);
+
+        assertEquals(first, click("0123456789abcdefghij-1"));
+        assertEquals(1, EVENTS.get());
+    }
+
+    private String click(String token)
+    {
+        tester.startPage(TestPage.class);
+        tester.getRequest().setParameter(StatelessSubmitRegistry.PARAMETER, token);
+        tester.getRequest().setParameter(StatelessSingleFlight.PARAMETER, "1");
+        tester.executeAjaxEvent("link", "click");
+        return tester.getLastResponseAsString();
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestPage()
+        {
+            Label result = new Label("result", IModel.of(() -> "events " + EVENTS.get()));
+            result.setOutputMarkupId(true);
+            add(result);
+            add(new WebMarkupContainer("link").add(StatelessAjaxEventBehavior.onEvent("click", t -> {
+                EVENTS.incrementAndGet();
+                t.add(result);
+            }).setSingleFlight(true)));
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><a wicket:id=\"link\">l</a><span wicket:id=\"result\"></span></body></html>");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.yipuran.wicketcustom.stateless;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.extensions.markup.html.tabs.AbstractTab;
+import org.apache.wicket.extensions.markup.html.tabs.ITab;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.StatelessForm;
+import org.apache.wicket.markup.html.panel.EmptyPanel;
+import org.apache.wicket.markup.html.panel.Fragment;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxFormSubmitBehavior;
+
+class StatelessTabbedPanelTest
+{
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void tabClickInFormSwitchesTab()
+    {
+        tester.startPage(TestPage.class, new PageParameters().set("form", true));
+        assertTrue(tester.getLastRenderedPage().isPageStateless());
+        String markup = tester.getLastResponseAsString();
+        assertTrue(markup.contains("\"pd\":true"), markup);
+
+        tester.executeAjaxEvent("form:tabs:tabs-container:tabs:1:link", "click");
+        assertTrue(tester.getLastResponseAsString().contains("second"), tester.getLastResponseAsString());
+    }
+
+    @Test
+    void formTabLinksDoNotSuppressDuplicates()
+    {
+        tester.startPage(TestPage.class, new PageParameters().set("form", true));
+        assertFalse(tester.getLastResponseAsString().contains(StatelessSubmitRegistry.PARAMETER));
+        StatelessAjaxFormSubmitBehavior behavior = tester.getComponentFromLastRenderedPage("form:tabs:tabs-container:tabs:1:link")
+            .getBehaviors(StatelessAjaxFormSubmitBehavior.class).get(0);
+        assertFalse(behavior.getSuppressDuplicates());
+    }
+
+    @Test
+    void tabClickWithoutFormSwitchesTab()
+    {
+        tester.startPage(TestPage.class);
+        tester.executeAjaxEvent("form:tabs:tabs-container:tabs:1:link", "click");
+        assertTrue(tester.getLastResponseAsString().contains("second"), tester.getLastResponseAsString());
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestPage(PageParameters parameters)
+        {
+            super(parameters);
+            List<ITab> tabs = new ArrayList<>();
+            tabs.add(tab("first"));
+            tabs.add(tab("second"));
+            MarkupContainer form = parameters.get("form").toBoolean(false)
+                ? new StatelessForm<Void>("form") : new WebMarkupContainer("form");
+            add(form);
+            form.add(new StatelessTabbedPanel<ITab>("tabs", tabs));
+        }
+
+        private ITab tab(String text)
+        {
+            return new AbstractTab(Model.of(text))
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public WebMarkupContainer getPanel(String panelId)
+                {
+                    Fragment fragment = new Fragment(panelId, "content", TestPage.this);
+                    fragment.add(new Label("text", text));
+                    return fragment;
+                }
+            };
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><form wicket:id=\"form\"><div wicket:id=\"tabs\"></div></form>"
+                + "<wicket:fragment wicket:id=\"content\"><span wicket:id=\"text\"></span></wicket:fragment></body></html>");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.yipuran.wicketcustom.stateless;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.stateless.behaviors.StatelessAjaxEventBehavior;
+
+class StatelessTimingsTest
+{
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void repeaterRowsShareOneEntry()
+    {
+        StatelessTimings timings = StatelessTimings.install(tester.getApplication(), false);
+
+        for (int i = 0; i < 3; i++)
+        {
+            tester.startPage(TestPage.class);
+            tester.executeAjaxEvent("rows:" + i + ":link", "click");
+        }
+
+        List<StatelessTimings.Statistics> statistics = timings.getStatistics();
+        assertEquals(1, statistics.size());
+        StatelessTimings.Statistics entry = statistics.get(0);
+        assertEquals(TestPage.class.getName(), entry.getPageClass());
+        assertTrue(entry.getBehavior().startsWith("rows:*:link:"), entry.getBehavior());
+        assertEquals(3, entry.getCount());
+    }
+
+    @Test
+    void normalizeReplacesNumericSegments()
+    {
+        assertEquals("rows:*:link", StatelessTimings.normalize("rows:12:link"));
+        assertEquals("form:*:cells:*:a1", StatelessTimings.normalize("form:0:cells:3:a1"));
+        assertEquals("link", StatelessTimings.normalize("link"));
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestPage()
+        {
+            add(new ListView<String>("rows", Arrays.asList("a", "b", "c"))
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void populateItem(ListItem<String> item)
+                {
+                    item.add(new WebMarkupContainer("link").add(StatelessAjaxEventBehavior.onEvent("click", t -> {
+                    })));
+                }
+            });
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><div wicket:id=\"rows\"><a wicket:id=\"link\">l</a></div></body></html>");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.yipuran.wicketcustom.stateless.behaviors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StatelessAJAXDownloadTest
+{
+    static int instances;
+
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+        instances = 0;
+        TestPage.suffix = "";
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void downloadUrlIsEscapedInTheScript()
+    {
+        TestPage.suffix = "&q=it's";
+        tester.startPage(TestPage.class);
+        tester.executeAjaxEvent("link", "click");
+        String response = tester.getLastResponseAsString();
+
+        int start = response.indexOf("window.location.href='");
+        assertTrue(start >= 0, response);
+        String url = response.substring(start + "window.location.href='".length(), response.indexOf("';}", start));
+        assertTrue(url.endsWith("&q=it\\'s"), url);
+    }
+
+    @Test
+    void downloadWorksOnAFreshPage()
+    {
+        TestPage page = tester.startPage(TestPage.class);
+        String url = page.download.getCallbackUrl().toString();
+        assertTrue(page.isPageStateless());
+
+        tester.executeUrl(url);
+
+        // the download request constructed the page again from the parameters of the url
+        assertEquals(2, instances);
+        assertEquals("hello Brien", new String(tester.getLastResponse().getBinaryContent(), StandardCharsets.UTF_8));
+        assertTrue(tester.getLastResponse().getHeader("Content-Disposition").startsWith("attachment"),
+            tester.getLastResponse().getHeader("Content-Disposition"));
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        static String suffix = "";
+
+        final StatelessAJAXDownload download;
+
+        public TestPage(PageParameters parameters)
+        {
+            super(parameters);
+            instances++;
+            String name = parameters.get("name").toString("nobody");
+            download = new StatelessAJAXDownload()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected IResourceStream getResourceStream()
+                {
+                    return new StringResourceStream("hello " + name, "text/plain");
+                }
+
+                @Override
+                protected PageParameters getPageParameters()
+                {
+                    return new PageParameters().add("name", "Brien");
+                }
+
+                @Override
+                public CharSequence getCallbackUrl()
+                {
+                    return super.getCallbackUrl() + suffix;
+                }
+            };
+            add(new WebMarkupContainer("link").add(download)
+                .add(StatelessAjaxEventBehavior.onEvent("click", t -> download.callBackDownload(t))));
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><a wicket:id=\"link\">l</a></body></html>");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.yipuran.wicketcustom.stateless.behaviors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Page;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StatelessAjaxBatchBehaviorTest
+{
+    static final List<String> EVENTS = new ArrayList<>();
+
+    static int instances;
+
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+        EVENTS.clear();
+        instances = 0;
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void batchedEventsAreQueuedOnTheClient()
+    {
+        tester.startPage(TestPage.class);
+        String markup = tester.getLastResponseAsString();
+
+        assertEquals(2, markup.split("yipuranStatelessBatch.offer", -1).length - 1, markup);
+    }
+
+    @Test
+    void queuedEventsAreDispatchedInOneRequest()
+    {
+        tester.startPage(TestPage.class);
+        Page page = tester.getLastRenderedPage();
+        String events = "[" + event(page, "container:a") + "," + event(page, "container:b") + ","
+            + event(page, "container:a") + ",[\"container:missing\",0]]";
+
+        tester.getRequest().setParameter(StatelessAjaxBatchBehavior.PARAMETER, events);
+        tester.executeBehavior(page.getBehaviors(StatelessAjaxBatchBehavior.class).get(0));
+
+        assertEquals(List.of("a", "b", "a"), EVENTS);
+        // the page was reconstructed once for the whole batch
+        assertEquals(2, instances);
+        String response = tester.getLastResponseAsString();
+        assertEquals(1, response.split("<component id=\"result", -1).length - 1, response);
+        assertTrue(response.contains("events a,b,a"), response);
+    }
+
+    @Test
+    void formSubmittingBehaviorIgnoresEventOptions()
+    {
+        StatelessAjaxFormSubmitBehavior submit = new StatelessAjaxFormSubmitBehavior("click");
+        StatelessAjaxEventBehavior behavior = submit.setBatched(true).setCacheable(Duration.ofMinutes(1)).setSingleFlight(true);
+
+        assertFalse(behavior.isBatched());
+        assertNull(behavior.getCacheMaxAge());
+        assertFalse(behavior.isSingleFlight());
+    }
+
+    private static String event(Page page, String path)
+    {
+        Component component = page.get(path);
+        StatelessAjaxEventBehavior behavior = component.getBehaviors(StatelessAjaxEventBehavior.class).get(0);
+        return "[\"" + path + "\"," + component.getBehaviorId(behavior) + "]";
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestPage()
+        {
+            instances++;
+            add(new StatelessAjaxBatchBehavior());
+            Label result = new Label("result", IModel.of(() -> "events " + String.join(",", EVENTS)));
+            result.setOutputMarkupId(true);
+            add(result);
+            // queued components are resolved only when the page is initialized
+            queue(new WebMarkupContainer("container"));
+            queue(link("a", result));
+            queue(link("b", result));
+        }
+
+        private static WebMarkupContainer link(String id, Component result)
+        {
+            WebMarkupContainer link = new WebMarkupContainer(id);
+            link.add(StatelessAjaxEventBehavior.onEvent("click", t -> {
+                EVENTS.add(id);
+                t.add(result);
+            }).setBatched(true));
+            return link;
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><div wicket:id=\"container\"><a wicket:id=\"a\">a</a><a wicket:id=\"b\">b</a></div>"
+                + "<span wicket:id=\"result\"></span></body></html>");
+        }
+    }
+}
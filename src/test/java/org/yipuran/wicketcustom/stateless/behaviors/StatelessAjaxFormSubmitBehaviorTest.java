@@ -0,0 +1,191 @@
+package org.yipuran.wicketcustom.stateless.behaviors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.form.StatelessForm;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.convert.IConverter;
+import org.apache.wicket.util.convert.converter.IntegerConverter;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.apache.wicket.validation.IValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yipuran.wicketcustom.stateless.StatelessSubmitRegistry;
+
+class StatelessAjaxFormSubmitBehaviorTest
+{
+    static final AtomicInteger SUBMITS = new AtomicInteger();
+
+    static final AtomicInteger ERRORS = new AtomicInteger();
+
+    /** conversions and validations of the field "kept" */
+    static final AtomicInteger KEPT_CHECKS = new AtomicInteger();
+
+    static final AtomicReference<Integer> KEPT = new AtomicReference<>();
+
+    private WicketTester tester;
+
+    @BeforeEach
+    void setUp()
+    {
+        tester = new WicketTester();
+        SUBMITS.set(0);
+        ERRORS.set(0);
+        KEPT_CHECKS.set(0);
+        KEPT.set(null);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        tester.destroy();
+    }
+
+    @Test
+    void duplicateSuppressionIsOptIn()
+    {
+        tester.startPage(TestPage.class);
+        String markup = tester.getLastResponseAsString();
+
+        assertEquals(1, markup.split(StatelessSubmitRegistry.PARAMETER, -1).length - 1, markup);
+        String submitter = tester.getComponentFromLastRenderedPage("form:once").getMarkupId() + ".";
+        assertTrue(markup.contains("'" + submitter), markup);
+    }
+
+    @Test
+    void sameTokenIsProcessedOnce()
+    {
+        StatelessSubmitRegistry.install(tester.getApplication());
+
+        submit("form:once", "0123456789abcdefghij-1");
+        submit("form:once", "0123456789abcdefghij-1");
+        assertEquals(1, SUBMITS.get());
+
+        submit("form:once", "0123456789abcdefghij-2");
+        assertEquals(2, SUBMITS.get());
+    }
+
+    @Test
+    void dirtyOnlyStillChecksEmptyRequiredFields()
+    {
+        tester.startPage(TestPage.class);
+        tester.getRequest().getPostParameters().setParameterValue(StatelessAjaxFormSubmitBehavior.DIRTY_PARAMETER, "");
+        tester.getRequest().getPostParameters().addParameterValue(StatelessAjaxFormSubmitBehavior.DIRTY_PARAMETER, "text");
+        tester.getRequest().getPostParameters().setParameterValue("text", "x");
+        tester.executeAjaxEvent("form:dirty", "click");
+
+        assertEquals(0, SUBMITS.get());
+        assertEquals(1, ERRORS.get());
+
+        tester.startPage(TestPage.class);
+        tester.getRequest().getPostParameters().setParameterValue(StatelessAjaxFormSubmitBehavior.DIRTY_PARAMETER, "");
+        tester.getRequest().getPostParameters().addParameterValue(StatelessAjaxFormSubmitBehavior.DIRTY_PARAMETER, "required");
+        tester.getRequest().getPostParameters().setParameterValue("required", "r");
+        tester.executeAjaxEvent("form:dirty", "click");
+
+        assertEquals(1, SUBMITS.get());
+    }
+
+    @Test
+    void dirtyOnlySkipsFieldsMissingFromTheManifest()
+    {
+        tester.startPage(TestPage.class);
+        tester.getRequest().getPostParameters().setParameterValue(StatelessAjaxFormSubmitBehavior.DIRTY_PARAMETER, "");
+        tester.getRequest().getPostParameters().addParameterValue(StatelessAjaxFormSubmitBehavior.DIRTY_PARAMETER, "text");
+        tester.getRequest().getPostParameters().addParameterValue(StatelessAjaxFormSubmitBehavior.DIRTY_PARAMETER, "required");
+        tester.getRequest().getPostParameters().setParameterValue("text", "x");
+        tester.getRequest().getPostParameters().setParameterValue("required", "r");
+        // sent although untouched, must not be processed
+        tester.getRequest().getPostParameters().setParameterValue("kept", "7");
+        tester.executeAjaxEvent("form:dirty", "click");
+
+        assertEquals(1, SUBMITS.get());
+        assertEquals(0, ERRORS.get());
+        assertEquals(42, KEPT.get());
+        assertEquals(0, KEPT_CHECKS.get());
+    }
+
+    private void submit(String path, String token)
+    {
+        tester.startPage(TestPage.class);
+        tester.getRequest().setParameter(StatelessSubmitRegistry.PARAMETER, token);
+        tester.getRequest().getPostParameters().setParameterValue("required", "r");
+        tester.executeAjaxEvent(path, "click");
+    }
+
+    public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+    {
+        private static final long serialVersionUID = 1L;
+
+        public TestPage()
+        {
+            StatelessForm<Void> form = new StatelessForm<>("form");
+            add(form);
+            form.add(new TextField<String>("text", new Model<String>()));
+            form.add(new WebMarkupContainer("once").add(StatelessAjaxFormSubmitBehavior.onSubmit("click", t -> SUBMITS.incrementAndGet())
+                .setSuppressDuplicates(true)));
+            form.add(new WebMarkupContainer("always").add(StatelessAjaxFormSubmitBehavior.onSubmit("click", t -> SUBMITS.incrementAndGet())));
+            form.add(new TextField<String>("required", new Model<String>()).setRequired(true));
+            TextField<Integer> kept = new TextField<Integer>("kept", Model.of(42), Integer.class)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected IConverter<?> createConverter(Class<?> type)
+                {
+                    return new IntegerConverter()
+                    {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public Integer convertToObject(String value, Locale locale)
+                        {
+                            KEPT_CHECKS.incrementAndGet();
+                            return super.convertToObject(value, locale);
+                        }
+                    };
+                }
+            };
+            form.add(kept.add((IValidator<Integer>)validatable -> KEPT_CHECKS.incrementAndGet()));
+            form.add(new WebMarkupContainer("dirty").add(new StatelessAjaxFormSubmitBehavior("click")
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void onSubmit(AjaxRequestTarget target)
+                {
+                    SUBMITS.incrementAndGet();
+                    KEPT.set(kept.getModelObject());
+                }
+
+                @Override
+                protected void onError(AjaxRequestTarget target)
+                {
+                    ERRORS.incrementAndGet();
+                }
+            }.setDirtyFieldsOnly(true)));
+        }
+
+        @Override
+        public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+        {
+            return new StringResourceStream("<html><body><form wicket:id=\"form\"><input type=\"text\" wicket:id=\"text\"/>"
+                + "<input type=\"text\" wicket:id=\"required\"/><input type=\"text\" wicket:id=\"kept\"/><button wicket:id=\"once\">once</button>"
+                + "<button wicket:id=\"always\">always</button><button wicket:id=\"dirty\">dirty</button></form></body></html>");
+        }
+    }
+}